@@ -10,7 +10,7 @@ public class AdminDAO {
     public Admin authenticateAdmin(String username, String password) {
         String query = "SELECT * FROM admins WHERE username = ? AND password = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnection("AdminDAO.authenticateAdmin");
              PreparedStatement ps = conn.prepareStatement(query)) {
 
             ps.setString(1, username);
@@ -39,7 +39,7 @@ public class AdminDAO {
     public boolean registerAdmin(Admin admin) {
         String query = "INSERT INTO admins(username, password, full_name, email) VALUES (?, ?, ?, ?)";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnection("AdminDAO.registerAdmin");
              PreparedStatement ps = conn.prepareStatement(query)) {
 
             ps.setString(1, admin.getUsername());
@@ -60,7 +60,7 @@ public class AdminDAO {
     public boolean usernameExists(String username) {
         String query = "SELECT username FROM admins WHERE username = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnection("AdminDAO.usernameExists");
              PreparedStatement ps = conn.prepareStatement(query)) {
 
             ps.setString(1, username);
@@ -79,7 +79,7 @@ public class AdminDAO {
     public Admin getAdminById(int adminId) {
         String query = "SELECT * FROM admins WHERE admin_id = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnection("AdminDAO.getAdminById");
              PreparedStatement ps = conn.prepareStatement(query)) {
 
             ps.setInt(1, adminId);
@@ -107,7 +107,7 @@ public class AdminDAO {
     public boolean changePassword(int adminId, String newPassword) {
         String query = "UPDATE admins SET password = ? WHERE admin_id = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnection("AdminDAO.changePassword");
              PreparedStatement ps = conn.prepareStatement(query)) {
 
             ps.setString(1, newPassword);
@@ -0,0 +1,425 @@
+package utils;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Priority admission in front of a connection pool.
+ *
+ * Every checkout is classified by its DAO operation name into a priority
+ * class: VOTE, then LOGIN, then BALLOT_READ, then ADMIN_REPORT (the default).
+ * Each class has its own concurrency limit and a bounded wait queue, and all
+ * classes share the pool's capacity. A freed slot goes to the
+ * highest-priority waiter, so an export cannot take connections voters are
+ * queueing for.
+ *
+ * Strict priority would let a stream of logins starve ballot reads and so
+ * stall sessions halfway, so a voting-path waiter that has queued longer
+ * than the aging limit is admitted ahead of newer work. Admin reports never
+ * age.
+ *
+ * Work is rejected at once, with {@link AdmissionRejectedException}, when
+ * its class queue is full, and admin reports are shed while voters or logins
+ * are already waiting.
+ */
+public class AdmissionController {
+
+    public enum Priority { VOTE, LOGIN, BALLOT_READ, ADMIN_REPORT }
+
+    private static final Map<String, Priority> DEFAULT_CLASSES = defaultClasses();
+    private static final String JMX_DOMAIN = "voting.dao";
+    // Pool name -> controller whose lanes are registered under it
+    private static final Map<String, AdmissionController> REGISTERED = new ConcurrentHashMap<>();
+
+    /**
+     * Thrown when a checkout is rejected, shed or times out waiting for admission
+     */
+    public static class AdmissionRejectedException extends SQLTransientConnectionException {
+        private static final long serialVersionUID = 1L;
+
+        private final Priority priority;
+
+        AdmissionRejectedException(Priority priority, String reason) {
+            super(priority + " request rejected: " + reason);
+            this.priority = priority;
+        }
+
+        public Priority getPriority() {
+            return priority;
+        }
+
+        /** Rejections are expected under load; skip the stack walk */
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    /**
+     * One priority class: its limits, queue and counters
+     */
+    public final class Lane implements AdmissionLaneMXBean {
+        private final Priority priority;
+        private final int limit;
+        private final int queueCapacity;
+        private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        private int running;
+        private int maxQueued;
+        private final LongAdder admitted = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder shed = new LongAdder();
+        private final LongAdder timedOut = new LongAdder();
+
+        Lane(Priority priority, int limit, int queueCapacity) {
+            this.priority = priority;
+            this.limit = limit;
+            this.queueCapacity = queueCapacity;
+        }
+
+        public Priority getPriority() { return priority; }
+        @Override public int getLimit() { return limit; }
+        @Override public int getQueueCapacity() { return queueCapacity; }
+        @Override public long getAdmitted() { return admitted.sum(); }
+        @Override public long getRejected() { return rejected.sum(); }
+        @Override public long getShed() { return shed.sum(); }
+        @Override public long getTimedOut() { return timedOut.sum(); }
+
+        @Override
+        public int getRunning() {
+            lock.lock();
+            try {
+                return running;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int getQueued() {
+            lock.lock();
+            try {
+                return waiters.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int getMaxQueued() {
+            lock.lock();
+            try {
+                return maxQueued;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class Waiter {
+        final Condition admitted;
+        final long queuedAt;
+        boolean granted;
+
+        Waiter(Condition admitted, long queuedAt) {
+            this.admitted = admitted;
+            this.queuedAt = queuedAt;
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final int capacity;
+    private final Lane[] lanes;
+    private int runningTotal;
+    private volatile long agingNanos = TimeUnit.MILLISECONDS.toNanos(100);
+    private final Map<String, Priority> overrides = new ConcurrentHashMap<>();
+
+    /**
+     * @param capacity checkouts allowed at once across all classes (the pool size)
+     * @param limits per-class concurrency limits, in Priority order
+     * @param queueCapacities per-class maximum waiters, in Priority order
+     */
+    public AdmissionController(int capacity, int[] limits, int[] queueCapacities) {
+        Priority[] priorities = Priority.values();
+        if (capacity < 1 || limits.length != priorities.length || queueCapacities.length != priorities.length) {
+            throw new IllegalArgumentException("Invalid admission settings for capacity " + capacity);
+        }
+        this.capacity = capacity;
+        this.lanes = new Lane[priorities.length];
+        for (Priority p : priorities) {
+            int limit = Math.min(capacity, limits[p.ordinal()]);
+            if (limit < 1 || queueCapacities[p.ordinal()] < 0) {
+                throw new IllegalArgumentException("Invalid admission settings for " + p);
+            }
+            lanes[p.ordinal()] = new Lane(p, limit, queueCapacities[p.ordinal()]);
+        }
+    }
+
+    /**
+     * Default split for a pool: votes may use every connection, logins and
+     * ballot reads three quarters and admin reports a quarter. Voting classes
+     * get deep queues so a surge waits instead of failing; admin reports
+     * queue at most one per connection.
+     * @param poolSize pool maximum size
+     */
+    public static AdmissionController forPoolSize(int poolSize) {
+        int threeQuarters = Math.max(1, poolSize * 3 / 4);
+        return new AdmissionController(poolSize,
+                new int[]{poolSize, threeQuarters, threeQuarters, Math.max(1, poolSize / 4)},
+                new int[]{poolSize * 256, poolSize * 256, poolSize * 256, poolSize});
+    }
+
+    /**
+     * Priority class of a DAO operation ("Class.method"); unknown and unnamed
+     * operations are ADMIN_REPORT
+     */
+    public Priority classify(String operation) {
+        Priority p = operation != null ? overrides.get(operation) : null;
+        return p != null ? p : defaultPriority(operation);
+    }
+
+    /**
+     * Priority class an operation has unless a controller overrides it
+     */
+    public static Priority defaultPriority(String operation) {
+        Priority p = operation != null ? DEFAULT_CLASSES.get(operation) : null;
+        return p != null ? p : Priority.ADMIN_REPORT;
+    }
+
+    /**
+     * Put an operation in a different class than the default
+     */
+    public void setPriority(String operation, Priority priority) {
+        overrides.put(operation, priority);
+    }
+
+    /**
+     * How long a VOTE, LOGIN or BALLOT_READ waiter can be passed over by
+     * higher-priority work before it goes first
+     */
+    public void setAgingMillis(long millis) {
+        agingNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * Wait for admission
+     * @param priority class of the work
+     * @param timeoutNanos longest time to wait in the queue
+     * @throws AdmissionRejectedException if rejected, shed or timed out
+     */
+    public void acquire(Priority priority, long timeoutNanos) throws AdmissionRejectedException {
+        Lane lane = lanes[priority.ordinal()];
+        Waiter waiter;
+        lock.lock();
+        try {
+            if (canStart(lane) && !hasEligibleWaiter(priority.ordinal()) && agedWaiter(System.nanoTime()) == null) {
+                start(lane);
+                return;
+            }
+            if (priority == Priority.ADMIN_REPORT && hasWaiterAbove(priority.ordinal())) {
+                lane.shed.increment();
+                throw new AdmissionRejectedException(priority, "shed while higher-priority work is waiting");
+            }
+            if (lane.waiters.size() >= lane.queueCapacity) {
+                lane.rejected.increment();
+                throw new AdmissionRejectedException(priority, "queue full (" + lane.queueCapacity + ")");
+            }
+            waiter = new Waiter(lock.newCondition(), System.nanoTime());
+            lane.waiters.addLast(waiter);
+            lane.maxQueued = Math.max(lane.maxQueued, lane.waiters.size());
+
+            long remaining = timeoutNanos;
+            while (!waiter.granted) {
+                if (remaining <= 0) {
+                    lane.waiters.remove(waiter);
+                    lane.timedOut.increment();
+                    throw new AdmissionRejectedException(priority, "timed out after "
+                            + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms in the queue");
+                }
+                try {
+                    remaining = waiter.admitted.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    if (waiter.granted) {
+                        return;
+                    }
+                    lane.waiters.remove(waiter);
+                    throw new AdmissionRejectedException(priority, "interrupted in the queue");
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Give back the slot taken by acquire and admit the next waiter
+     */
+    public void release(Priority priority) {
+        lock.lock();
+        try {
+            lanes[priority.ordinal()].running--;
+            runningTotal--;
+            long now = System.nanoTime();
+            Lane aged;
+            while ((aged = agedWaiter(now)) != null) {
+                grant(aged);
+            }
+            for (Lane lane : lanes) {
+                while (!lane.waiters.isEmpty() && canStart(lane)) {
+                    grant(lane);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Lane getLane(Priority priority) {
+        return lanes[priority.ordinal()];
+    }
+
+    /**
+     * Register each class as {@code voting.dao:type=Admission,pool=<pool>,name=<class>},
+     * replacing the beans of an earlier controller under the same pool name
+     */
+    public void registerMBeans(String pool) {
+        synchronized (REGISTERED) {
+            REGISTERED.put(pool, this);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            for (Lane lane : lanes) {
+                try {
+                    ObjectName name = objectName(pool, lane.priority);
+                    if (server.isRegistered(name)) server.unregisterMBean(name);
+                    server.registerMBean(lane, name);
+                } catch (JMException e) {
+                    System.err.println("Error registering admission MBean for " + lane.priority + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove this controller's beans; a no-op once another controller has taken the pool name
+     */
+    public void unregisterMBeans(String pool) {
+        synchronized (REGISTERED) {
+            if (!REGISTERED.remove(pool, this)) return;
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            for (Lane lane : lanes) {
+                try {
+                    ObjectName name = objectName(pool, lane.priority);
+                    if (server.isRegistered(name)) server.unregisterMBean(name);
+                } catch (JMException e) {
+                    System.err.println("Error unregistering admission MBean for " + lane.priority + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /** Operation name -> priority for every explicitly classified operation */
+    public Map<String, Priority> getClassification() {
+        Map<String, Priority> all = new HashMap<>(DEFAULT_CLASSES);
+        all.putAll(overrides);
+        return Collections.unmodifiableMap(all);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        lock.lock();
+        try {
+            for (Lane l : lanes) {
+                sb.append(String.format("%-12s running=%d/%d queued=%d/%d maxQueued=%d admitted=%d rejected=%d shed=%d timedOut=%d%n",
+                        l.priority, l.running, l.limit, l.waiters.size(), l.queueCapacity, l.maxQueued,
+                        l.getAdmitted(), l.getRejected(), l.getShed(), l.getTimedOut()));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return sb.toString();
+    }
+
+    private static ObjectName objectName(String pool, Priority priority) throws JMException {
+        return new ObjectName(JMX_DOMAIN + ":type=Admission,pool=" + ObjectName.quote(pool) + ",name=" + priority);
+    }
+
+    // Callers hold the lock
+
+    private boolean canStart(Lane lane) {
+        return lane.running < lane.limit && runningTotal < capacity;
+    }
+
+    private void start(Lane lane) {
+        lane.running++;
+        runningTotal++;
+        lane.admitted.increment();
+    }
+
+    private void grant(Lane lane) {
+        Waiter next = lane.waiters.pollFirst();
+        start(lane);
+        next.granted = true;
+        next.admitted.signal();
+    }
+
+    /** The voting-path lane whose head has waited longest past the aging limit and could start now */
+    private Lane agedWaiter(long now) {
+        Lane oldest = null;
+        long oldestAt = now - agingNanos;
+        for (int i = 0; i < Priority.ADMIN_REPORT.ordinal(); i++) {
+            Waiter head = lanes[i].waiters.peekFirst();
+            if (head != null && head.queuedAt - oldestAt <= 0 && canStart(lanes[i])) {
+                oldest = lanes[i];
+                oldestAt = head.queuedAt;
+            }
+        }
+        return oldest;
+    }
+
+    /** A waiter at this priority or above that could start now would be overtaken */
+    private boolean hasEligibleWaiter(int ordinal) {
+        for (int i = 0; i <= ordinal; i++) {
+            if (!lanes[i].waiters.isEmpty() && lanes[i].running < lanes[i].limit) return true;
+        }
+        return false;
+    }
+
+    private boolean hasWaiterAbove(int ordinal) {
+        for (int i = 0; i < ordinal; i++) {
+            if (!lanes[i].waiters.isEmpty()) return true;
+        }
+        return false;
+    }
+
+    private static Map<String, Priority> defaultClasses() {
+        Map<String, Priority> m = new HashMap<>();
+        for (String op : new String[]{"VoteDAO.castVote", "VoteDAO.castVoteAtomic", "VoteDAO.applyVotes",
+                "VoteDAO.isVoterEligible",
+                "VoteDAO.incrementCandidateVote", "VoteIngestionPipeline.insertBatch", "VoterDAO.updateVotingStatus",
+                "CandidateDAO.incrementVoteCount", "CandidateDAO.addVoteCounts"}) {
+            m.put(op, Priority.VOTE);
+        }
+        for (String op : new String[]{"VoterDAO.authenticateVoter", "AdminDAO.authenticateAdmin"}) {
+            m.put(op, Priority.LOGIN);
+        }
+        for (String op : new String[]{"CandidateDAO.getApprovedCandidates", "CandidateDAO.getBallot",
+                "CandidateDAO.getCandidateById", "VoteDAO.hasVoted", "VoterDAO.hasVoted", "VoterDAO.getVoterById",
+                "VoterDAO.isElectionActive", "ElectionDAO.getActiveElections", "ElectionDAO.getScheduledElections",
+                "VoteDAO.queryResultsByElection", "VoteDAO.forEachVoterId"}) {
+            m.put(op, Priority.BALLOT_READ);
+        }
+        return Collections.unmodifiableMap(m);
+    }
+}
@@ -0,0 +1,30 @@
+package utils;
+
+/**
+ * JMX view of one admission priority class, registered as
+ * {@code voting.dao:type=Admission,pool=<pool>,name=<class>}.
+ */
+public interface AdmissionLaneMXBean {
+
+    /** Checkouts of this class allowed at once */
+    int getLimit();
+
+    int getQueueCapacity();
+
+    int getRunning();
+
+    /** Current queue depth */
+    int getQueued();
+
+    int getMaxQueued();
+
+    long getAdmitted();
+
+    /** Turned away because the queue was full */
+    long getRejected();
+
+    /** Turned away because higher-priority work was waiting */
+    long getShed();
+
+    long getTimedOut();
+}
@@ -0,0 +1,366 @@
+package dao;
+
+import models.Admin;
+import models.Candidate;
+import models.CandidateBallotEntry;
+import models.CandidateFilter;
+import models.CandidateSummary;
+import models.Page;
+import models.Vote;
+import models.VoteOutcome;
+import models.VoteRow;
+import models.Voter;
+import models.VoterFilter;
+import models.VoterSummary;
+import services.VotingService;
+import utils.AdmissionController;
+import utils.CancellationScope;
+import utils.VirtualThreads;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking facade over VoterDAO, VoteDAO, CandidateDAO and AdminDAO.
+ *
+ * Each call runs the blocking DAO method on the configured executor (a new
+ * virtual thread per call by default) and returns a CompletableFuture.
+ * Votes and hasVoted checks go through a {@link VotingService}, so they
+ * follow the same rules (journal, counter engine, voted index) as
+ * synchronous votes; pass the application's instance.
+ *
+ * Calls are split into two bulkheads, voting and admin, each with its own
+ * limit on calls in flight. A call that finds its bulkhead full fails at once
+ * with RejectedExecutionException, so a burst of slow admin reports cannot
+ * take the connections the voting path needs.
+ * Behind the bulkheads the pool's {@link AdmissionController} orders
+ * checkouts by priority; a call it turns away fails with
+ * AdmissionRejectedException instead of returning the DAO's empty result.
+ *
+ * Every call has a timeout. When it expires, or the returned future is
+ * cancelled, the future completes exceptionally and the statements the call
+ * is running are cancelled through {@link CancellationScope}. The bulkhead
+ * slot is released only when the DAO method has actually returned.
+ * A write that times out may still have been committed; check before retrying.
+ *
+ * Settings can be overridden with system properties:
+ * async.voting.maxConcurrent, async.voting.timeoutMs,
+ * async.admin.maxConcurrent, async.admin.timeoutMs
+ */
+public class AsyncDao implements AutoCloseable {
+
+    private static final ScheduledThreadPoolExecutor TIMER = timer();
+
+    /**
+     * Facade settings
+     */
+    public static class Config {
+        private ExecutorService executor;
+        private int votingMaxConcurrent = 64;
+        private long votingTimeoutMillis = 5_000;
+        private int adminMaxConcurrent = 2;
+        private long adminTimeoutMillis = 60_000;
+
+        /** Executor for DAO calls; null for a virtual thread per call. Not shut down by close() */
+        public Config executor(ExecutorService executor) { this.executor = executor; return this; }
+        public Config votingMaxConcurrent(int max) { this.votingMaxConcurrent = max; return this; }
+        public Config votingTimeoutMillis(long millis) { this.votingTimeoutMillis = millis; return this; }
+        public Config adminMaxConcurrent(int max) { this.adminMaxConcurrent = max; return this; }
+        public Config adminTimeoutMillis(long millis) { this.adminTimeoutMillis = millis; return this; }
+    }
+
+    /**
+     * A limit on calls in flight for one class of work, with its counters
+     */
+    public static final class Bulkhead {
+        private final String name;
+        private final int maxConcurrent;
+        private final long timeoutMillis;
+        private final Semaphore permits;
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder timedOut = new LongAdder();
+        private final LongAdder cancelled = new LongAdder();
+        private final LongAdder shed = new LongAdder();
+
+        Bulkhead(String name, int maxConcurrent, long timeoutMillis) {
+            if (maxConcurrent < 1 || timeoutMillis < 1) {
+                throw new IllegalArgumentException("Invalid " + name + " bulkhead: maxConcurrent="
+                        + maxConcurrent + ", timeoutMs=" + timeoutMillis);
+            }
+            this.name = name;
+            this.maxConcurrent = maxConcurrent;
+            this.timeoutMillis = timeoutMillis;
+            this.permits = new Semaphore(maxConcurrent);
+        }
+
+        public String getName() { return name; }
+        public int getMaxConcurrent() { return maxConcurrent; }
+        public long getTimeoutMillis() { return timeoutMillis; }
+        /** Calls whose DAO method is still running, including ones that already timed out */
+        public int getRunning() { return maxConcurrent - permits.availablePermits(); }
+        public long getCompleted() { return completed.sum(); }
+        public long getRejected() { return rejected.sum(); }
+        public long getTimedOut() { return timedOut.sum(); }
+        public long getCancelled() { return cancelled.sum(); }
+        /** Calls turned away by the pool's admission control */
+        public long getShed() { return shed.sum(); }
+
+        @Override
+        public String toString() {
+            return String.format("%s running=%d/%d completed=%d rejected=%d shed=%d timedOut=%d cancelled=%d",
+                    name, getRunning(), maxConcurrent, getCompleted(), getRejected(), getShed(), getTimedOut(),
+                    getCancelled());
+        }
+    }
+
+    private final VoterDAO voterDAO;
+    private final VoteDAO voteDAO;
+    private final CandidateDAO candidateDAO;
+    private final AdminDAO adminDAO;
+    private final VotingService votingService;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final Bulkhead voting;
+    private final Bulkhead admin;
+
+    /**
+     * Facade over new DAOs (ballot reads cached), with settings from system properties
+     */
+    public AsyncDao() {
+        this(new VoterDAO(), new VoteDAO(), new CachedCandidateDAO(), new AdminDAO(), defaultConfig());
+    }
+
+    /**
+     * Facade whose votes go through a VotingService over the given VoteDAO,
+     * with no journal, counter engine or voted index
+     */
+    public AsyncDao(VoterDAO voterDAO, VoteDAO voteDAO, CandidateDAO candidateDAO, AdminDAO adminDAO, Config config) {
+        this(new VotingService(voteDAO), voterDAO, voteDAO, candidateDAO, adminDAO, config);
+    }
+
+    /**
+     * @param votingService service that casts votes and answers hasVoted
+     */
+    public AsyncDao(VotingService votingService, VoterDAO voterDAO, VoteDAO voteDAO, CandidateDAO candidateDAO,
+                    AdminDAO adminDAO, Config config) {
+        this.votingService = votingService;
+        this.voterDAO = voterDAO;
+        this.voteDAO = voteDAO;
+        this.candidateDAO = candidateDAO;
+        this.adminDAO = adminDAO;
+        this.ownsExecutor = config.executor == null;
+        this.executor = ownsExecutor ? VirtualThreads.newThreadPerTaskExecutor("async-dao") : config.executor;
+        this.voting = new Bulkhead("voting", config.votingMaxConcurrent, config.votingTimeoutMillis);
+        this.admin = new Bulkhead("admin", config.adminMaxConcurrent, config.adminTimeoutMillis);
+    }
+
+    // ==========================================================
+    //                      VOTING PATH
+    // ==========================================================
+
+    public CompletableFuture<Voter> authenticateVoter(String voterId, String password) {
+        return submit(voting, () -> voterDAO.authenticateVoter(voterId, password));
+    }
+
+    public CompletableFuture<Voter> getVoterById(String voterId) {
+        return submit(voting, () -> voterDAO.getVoterById(voterId));
+    }
+
+    public CompletableFuture<Boolean> hasVoted(String voterId, int electionId) {
+        return submit(voting, () -> votingService.hasVoted(voterId, electionId));
+    }
+
+    public CompletableFuture<VoteOutcome> castVote(Vote vote) {
+        return submit(voting, () -> votingService.castVote(vote));
+    }
+
+    public CompletableFuture<List<CandidateBallotEntry>> getBallot() {
+        return submit(voting, candidateDAO::getBallot);
+    }
+
+    public CompletableFuture<Candidate> getCandidateById(int candidateId) {
+        return submit(voting, () -> candidateDAO.getCandidateById(candidateId));
+    }
+
+    // ==========================================================
+    //                       ADMIN PATH
+    // ==========================================================
+
+    public CompletableFuture<Admin> authenticateAdmin(String username, String password) {
+        return submit(admin, () -> adminDAO.authenticateAdmin(username, password));
+    }
+
+    public CompletableFuture<Map<Integer, Integer>> getResultsByElection(int electionId) {
+        return submit(admin, () -> voteDAO.getResultsByElection(electionId));
+    }
+
+    public CompletableFuture<Integer> getTotalVotes(int electionId) {
+        return submit(admin, () -> voteDAO.getTotalVotes(electionId));
+    }
+
+    public CompletableFuture<List<VoteRow>> getVoteRowsByElection(int electionId) {
+        return submit(admin, () -> voteDAO.getVoteRowsByElection(electionId));
+    }
+
+    public CompletableFuture<Page<VoterSummary>> getVotersPage(VoterFilter filter, String cursor, int pageSize) {
+        return submit(admin, () -> voterDAO.getVotersPage(filter, cursor, pageSize));
+    }
+
+    public CompletableFuture<Page<CandidateSummary>> getCandidatesPage(CandidateFilter filter, String cursor, int pageSize) {
+        return submit(admin, () -> candidateDAO.getCandidatesPage(filter, cursor, pageSize));
+    }
+
+    public CompletableFuture<List<Voter>> getPendingVoters() {
+        return submit(admin, voterDAO::getPendingVoters);
+    }
+
+    public CompletableFuture<List<Candidate>> getPendingCandidates() {
+        return submit(admin, candidateDAO::getPendingCandidates);
+    }
+
+    public CompletableFuture<Boolean> approveVoter(String voterId) {
+        return submit(admin, () -> voterDAO.approveVoter(voterId));
+    }
+
+    public CompletableFuture<Boolean> approveCandidate(int candidateId) {
+        return submit(admin, () -> candidateDAO.approveCandidate(candidateId));
+    }
+
+    public CompletableFuture<Map<Integer, Integer>> reconcileVoteCounts() {
+        return submit(admin, candidateDAO::reconcileVoteCounts);
+    }
+
+    // ==========================================================
+    //                        GENERAL
+    // ==========================================================
+
+    /**
+     * Run any DAO call in a bulkhead with the bulkhead's timeout
+     */
+    public <T> CompletableFuture<T> submit(Bulkhead bulkhead, Supplier<T> call) {
+        return submit(bulkhead, bulkhead.timeoutMillis, call);
+    }
+
+    /**
+     * Run any DAO call in a bulkhead
+     * @param bulkhead getVoting() or getAdmin()
+     * @param timeoutMillis Time allowed for this call, including any wait for a connection
+     * @param call Blocking DAO call
+     * @return future with the call's result; fails with RejectedExecutionException if the
+     *         bulkhead is full, AdmissionRejectedException if the pool shed the call
+     *         and TimeoutException if the call overruns
+     */
+    public <T> CompletableFuture<T> submit(Bulkhead bulkhead, long timeoutMillis, Supplier<T> call) {
+        CancellationScope scope = new CancellationScope();
+        Call<T> future = new Call<>(scope);
+
+        if (!bulkhead.permits.tryAcquire()) {
+            bulkhead.rejected.increment();
+            future.completeExceptionally(new RejectedExecutionException(
+                    "Bulkhead full: " + bulkhead));
+            return future;
+        }
+
+        ScheduledFuture<?> timeout = TIMER.schedule(() -> {
+            if (future.completeExceptionally(new TimeoutException(
+                    bulkhead.name + " call timed out after " + timeoutMillis + " ms"))) {
+                bulkhead.timedOut.increment();
+                scope.cancel();
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+
+        try {
+            executor.execute(() -> {
+                try {
+                    if (!future.isDone()) {
+                        T result = scope.call(call);
+                        if (scope.getRejection() != null) {
+                            bulkhead.shed.increment();
+                            future.completeExceptionally(scope.getRejection());
+                        } else {
+                            future.complete(result);
+                        }
+                    }
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                } finally {
+                    timeout.cancel(false);
+                    bulkhead.completed.increment();
+                    bulkhead.permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            timeout.cancel(false);
+            bulkhead.permits.release();
+            bulkhead.rejected.increment();
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) bulkhead.cancelled.increment();
+        });
+        return future;
+    }
+
+    public Bulkhead getVoting() {
+        return voting;
+    }
+
+    public Bulkhead getAdmin() {
+        return admin;
+    }
+
+    /**
+     * Stop accepting calls. Calls already running are left to finish.
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor) executor.shutdown();
+    }
+
+    /** Future whose cancel() also cancels the statements of the running call */
+    private static final class Call<T> extends CompletableFuture<T> {
+        private final CancellationScope scope;
+
+        Call(CancellationScope scope) {
+            this.scope = scope;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) scope.cancel();
+            return cancelled;
+        }
+    }
+
+    private static Config defaultConfig() {
+        return new Config()
+                .votingMaxConcurrent(Integer.getInteger("async.voting.maxConcurrent", 64))
+                .votingTimeoutMillis(Long.getLong("async.voting.timeoutMs", 5_000L))
+                .adminMaxConcurrent(Integer.getInteger("async.admin.maxConcurrent", 2))
+                .adminTimeoutMillis(Long.getLong("async.admin.timeoutMs", 60_000L));
+    }
+
+    private static ScheduledThreadPoolExecutor timer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "async-dao-timeout");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+}
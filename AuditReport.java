@@ -0,0 +1,160 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a vote audit: where candidates.vote_count, election_results and
+ * voters.has_voted disagree with the votes table
+ */
+public class AuditReport {
+
+    /**
+     * A stored count that differs from the votes recounted
+     */
+    public static class CountMismatch {
+        private final int electionId;
+        private final int candidateId;
+        private final long stored;
+        private final long counted;
+
+        public CountMismatch(int electionId, int candidateId, long stored, long counted) {
+            this.electionId = electionId;
+            this.candidateId = candidateId;
+            this.stored = stored;
+            this.counted = counted;
+        }
+
+        /** 0 for candidates.vote_count, which is not per election */
+        public int getElectionId() { return electionId; }
+        public int getCandidateId() { return candidateId; }
+        public long getStored() { return stored; }
+        public long getCounted() { return counted; }
+
+        @Override
+        public String toString() {
+            return (electionId != 0 ? "election " + electionId + " " : "")
+                    + "candidate " + candidateId + ": stored " + stored + ", counted " + counted;
+        }
+    }
+
+    /**
+     * A voter with more than one vote in the same election
+     */
+    public static class DuplicateVote {
+        private final String voterId;
+        private final int electionId;
+        private final int votes;
+
+        public DuplicateVote(String voterId, int electionId, int votes) {
+            this.voterId = voterId;
+            this.electionId = electionId;
+            this.votes = votes;
+        }
+
+        public String getVoterId() { return voterId; }
+        public int getElectionId() { return electionId; }
+        public int getVotes() { return votes; }
+
+        @Override
+        public String toString() {
+            return voterId + " in election " + electionId + ": " + votes + " votes";
+        }
+    }
+
+    private long votesCounted;
+    private int ranges;
+    private long elapsedMillis;
+    private final List<CountMismatch> candidateMismatches = new ArrayList<>();
+    private final List<CountMismatch> resultMismatches = new ArrayList<>();
+    private long votedNotMarked;
+    private final List<String> votedNotMarkedSample = new ArrayList<>();
+    private long markedNotVoted;
+    private final List<String> markedNotVotedSample = new ArrayList<>();
+    private long orphanVotes;
+    private final List<DuplicateVote> duplicates = new ArrayList<>();
+    private boolean repaired;
+    private String repairSkippedReason;
+
+    public void setVotesCounted(long votesCounted, int ranges, long elapsedMillis) {
+        this.votesCounted = votesCounted;
+        this.ranges = ranges;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public void addCandidateMismatch(CountMismatch mismatch) {
+        candidateMismatches.add(mismatch);
+    }
+
+    public void addResultMismatch(CountMismatch mismatch) {
+        resultMismatches.add(mismatch);
+    }
+
+    public void setVotedNotMarked(long count, List<String> sample) {
+        votedNotMarked = count;
+        votedNotMarkedSample.addAll(sample);
+    }
+
+    public void setMarkedNotVoted(long count, List<String> sample) {
+        markedNotVoted = count;
+        markedNotVotedSample.addAll(sample);
+    }
+
+    public void setOrphanVotes(long orphanVotes) {
+        this.orphanVotes = orphanVotes;
+    }
+
+    public void addDuplicate(DuplicateVote duplicate) {
+        duplicates.add(duplicate);
+    }
+
+    public void setRepaired(boolean repaired, String skippedReason) {
+        this.repaired = repaired;
+        this.repairSkippedReason = skippedReason;
+    }
+
+    public long getVotesCounted() { return votesCounted; }
+    public int getRanges() { return ranges; }
+    public long getElapsedMillis() { return elapsedMillis; }
+    public List<CountMismatch> getCandidateMismatches() { return Collections.unmodifiableList(candidateMismatches); }
+    public List<CountMismatch> getResultMismatches() { return Collections.unmodifiableList(resultMismatches); }
+    /** Voters with a vote but has_voted = 0 */
+    public long getVotedNotMarked() { return votedNotMarked; }
+    public List<String> getVotedNotMarkedSample() { return Collections.unmodifiableList(votedNotMarkedSample); }
+    /** Voters with has_voted = 1 but no vote */
+    public long getMarkedNotVoted() { return markedNotVoted; }
+    public List<String> getMarkedNotVotedSample() { return Collections.unmodifiableList(markedNotVotedSample); }
+    /** Votes whose voter_id is not in voters */
+    public long getOrphanVotes() { return orphanVotes; }
+    public List<DuplicateVote> getDuplicates() { return Collections.unmodifiableList(duplicates); }
+    public boolean isRepaired() { return repaired; }
+    public String getRepairSkippedReason() { return repairSkippedReason; }
+
+    public boolean isConsistent() {
+        return candidateMismatches.isEmpty() && resultMismatches.isEmpty() && votedNotMarked == 0
+                && markedNotVoted == 0 && orphanVotes == 0 && duplicates.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        String nl = System.lineSeparator();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("votes counted %d in %d ranges, %d ms%s", votesCounted, ranges, elapsedMillis, nl));
+        sb.append("candidates.vote_count mismatches: ").append(candidateMismatches.size()).append(nl);
+        for (CountMismatch m : candidateMismatches) sb.append("  ").append(m).append(nl);
+        sb.append("election_results mismatches: ").append(resultMismatches.size()).append(nl);
+        for (CountMismatch m : resultMismatches) sb.append("  ").append(m).append(nl);
+        sb.append("voters with a vote but has_voted = 0: ").append(votedNotMarked)
+                .append(votedNotMarked > 0 ? " e.g. " + votedNotMarkedSample : "").append(nl);
+        sb.append("voters with has_voted = 1 but no vote: ").append(markedNotVoted)
+                .append(markedNotVoted > 0 ? " e.g. " + markedNotVotedSample : "").append(nl);
+        sb.append("votes from unknown voters: ").append(orphanVotes).append(nl);
+        sb.append("duplicate votes: ").append(duplicates.size()).append(nl);
+        for (DuplicateVote d : duplicates) sb.append("  ").append(d).append(nl);
+        if (repaired) sb.append("repaired").append(nl);
+        if (repairSkippedReason != null) sb.append("repair skipped: ").append(repairSkippedReason).append(nl);
+        sb.append(isConsistent() ? "CONSISTENT" : "INCONSISTENT");
+        return sb.toString();
+    }
+}
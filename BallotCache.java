@@ -0,0 +1,123 @@
+package dao;
+
+import models.Candidate;
+import models.CandidateBallotEntry;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide cache of the ballot: the approved candidates, a by-id map
+ * over them and the ballot entries derived from them, held as one immutable
+ * snapshot that is swapped atomically.
+ *
+ * CandidateDAO invalidates the snapshot whenever a candidate is registered,
+ * approved, updated or deleted; the next read rebuilds it with a single
+ * query. Cached Candidate objects are shared and must not be modified.
+ */
+public final class BallotCache {
+
+    private static final class Snapshot {
+        final List<Candidate> approved;
+        final Map<Integer, Candidate> byId;
+        final List<CandidateBallotEntry> ballot;
+
+        Snapshot(List<Candidate> approved) {
+            Map<Integer, Candidate> map = new HashMap<>();
+            List<CandidateBallotEntry> entries = new ArrayList<>(approved.size());
+            for (Candidate c : approved) {
+                map.put(c.getCandidateId(), c);
+                entries.add(new CandidateBallotEntry(c.getCandidateId(), c.getFullName(), c.getDepartment(),
+                        c.getSymbolFilename()));
+            }
+            this.approved = Collections.unmodifiableList(approved);
+            this.byId = Collections.unmodifiableMap(map);
+            this.ballot = Collections.unmodifiableList(entries);
+        }
+    }
+
+    private static final AtomicReference<Snapshot> SNAPSHOT = new AtomicReference<>();
+    private static final AtomicLong GENERATION = new AtomicLong();
+    private static final Object REBUILD_LOCK = new Object();
+
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final LongAdder REBUILDS = new LongAdder();
+
+    private BallotCache() {
+    }
+
+    /**
+     * Drop the current snapshot; the next read reloads it
+     */
+    public static void invalidate() {
+        GENERATION.incrementAndGet();
+        SNAPSHOT.set(null);
+    }
+
+    /** Reads served from memory */
+    public static long getHits() {
+        return HITS.sum();
+    }
+
+    /** Reads that went to the database (snapshot rebuilds and unknown IDs) */
+    public static long getMisses() {
+        return MISSES.sum();
+    }
+
+    /** Number of times the snapshot was reloaded */
+    public static long getRebuilds() {
+        return REBUILDS.sum();
+    }
+
+    static List<Candidate> approvedCandidates(CandidateDAO loader) throws SQLException {
+        return snapshot(loader).approved;
+    }
+
+    static List<CandidateBallotEntry> ballot(CandidateDAO loader) throws SQLException {
+        return snapshot(loader).ballot;
+    }
+
+    /**
+     * Approved candidate by ID from the snapshot, or null if it is not on the ballot
+     */
+    static Candidate approvedCandidate(CandidateDAO loader, int candidateId) throws SQLException {
+        return snapshot(loader).byId.get(candidateId);
+    }
+
+    static void recordMiss() {
+        MISSES.increment();
+    }
+
+    private static Snapshot snapshot(CandidateDAO loader) throws SQLException {
+        Snapshot s = SNAPSHOT.get();
+        if (s != null) {
+            HITS.increment();
+            return s;
+        }
+
+        synchronized (REBUILD_LOCK) {
+            s = SNAPSHOT.get();
+            if (s != null) {
+                HITS.increment();
+                return s;
+            }
+            MISSES.increment();
+
+            long generation = GENERATION.get();
+            s = new Snapshot(loader.queryApprovedCandidates());
+            REBUILDS.increment();
+
+            // An invalidation during the load means this snapshot may already be stale
+            if (GENERATION.get() == generation) SNAPSHOT.compareAndSet(null, s);
+            return s;
+        }
+    }
+}
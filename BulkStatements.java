@@ -0,0 +1,77 @@
+package dao;
+
+import utils.DatabaseConnection;
+import utils.SqlUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Runs set-based statements over a collection of IDs in fixed-size chunks,
+ * all inside one transaction.
+ */
+final class BulkStatements {
+
+    static final int CHUNK_SIZE = 500;
+
+    @FunctionalInterface
+    interface IdReader<T> {
+        T read(ResultSet rs) throws SQLException;
+    }
+
+    private BulkStatements() {
+    }
+
+    /**
+     * For each chunk, lock the rows matched by selectSql and apply updateSql to
+     * exactly those rows. Both statements take "%s" where the IN placeholders go.
+     * @return IDs that were affected; nothing is changed if any chunk fails
+     */
+    static <T> List<T> apply(Collection<T> ids, String selectSql, String updateSql, IdReader<T> reader)
+            throws SQLException {
+        List<T> affected = new ArrayList<>();
+        if (ids.isEmpty()) return affected;
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try {
+                for (List<T> chunk : SqlUtils.chunks(new LinkedHashSet<>(ids), CHUNK_SIZE)) {
+                    List<T> matched = new ArrayList<>();
+
+                    try (PreparedStatement ps = conn.prepareStatement(
+                            String.format(selectSql, SqlUtils.placeholders(chunk.size())))) {
+                        bind(ps, chunk);
+                        ResultSet rs = ps.executeQuery();
+                        while (rs.next()) matched.add(reader.read(rs));
+                    }
+                    if (matched.isEmpty()) continue;
+
+                    try (PreparedStatement ps = conn.prepareStatement(
+                            String.format(updateSql, SqlUtils.placeholders(matched.size())))) {
+                        bind(ps, matched);
+                        ps.executeUpdate();
+                    }
+                    affected.addAll(matched);
+                }
+
+                conn.commit();
+                return affected;
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement ps, List<?> values) throws SQLException {
+        for (int i = 0; i < values.size(); i++) ps.setObject(i + 1, values.get(i));
+    }
+}
@@ -0,0 +1,58 @@
+package dao;
+
+import models.Candidate;
+import models.CandidateBallotEntry;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CandidateDAO for the ballot path: the ballot, approved candidates and
+ * by-id lookups are served from {@link BallotCache} instead of the database.
+ * Writes go through CandidateDAO and invalidate the cache.
+ */
+public class CachedCandidateDAO extends CandidateDAO {
+
+    /**
+     * Get all approved candidates from the ballot cache (read-only list)
+     */
+    @Override
+    public List<Candidate> getApprovedCandidates() {
+        try {
+            return BallotCache.approvedCandidates(this);
+        } catch (SQLException e) {
+            System.err.println("❌ Error loading ballot: " + e.getMessage());
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Get the ballot entries from the ballot cache (read-only list)
+     */
+    @Override
+    public List<CandidateBallotEntry> getBallot() {
+        try {
+            return BallotCache.ballot(this);
+        } catch (SQLException e) {
+            System.err.println("❌ Error loading ballot: " + e.getMessage());
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Get a candidate by ID, from the ballot cache when the candidate is approved
+     */
+    @Override
+    public Candidate getCandidateById(int candidateId) {
+        try {
+            Candidate c = BallotCache.approvedCandidate(this, candidateId);
+            if (c != null) return c;
+        } catch (SQLException e) {
+            System.err.println("❌ Error loading ballot: " + e.getMessage());
+        }
+
+        BallotCache.recordMiss();
+        return super.getCandidateById(candidateId);
+    }
+}
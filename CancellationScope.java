@@ -0,0 +1,110 @@
+package utils;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Makes blocking DAO work cancellable from another thread.
+ *
+ * While {@link #call(Supplier)} runs, every statement the thread creates on a
+ * pooled connection is registered with the scope. {@link #cancel()} then calls
+ * Statement.cancel() on them, so a query stuck in the database is aborted
+ * instead of holding its connection until it finishes. Once cancelled, the
+ * thread cannot borrow another connection inside the scope.
+ *
+ * The thread is never interrupted: interrupting JDBC I/O can leave a pooled
+ * connection unusable.
+ */
+public final class CancellationScope {
+
+    /** SQLState for "query canceled" */
+    public static final String CANCELLED_STATE = "57014";
+
+    private static final ThreadLocal<CancellationScope> CURRENT = new ThreadLocal<>();
+
+    private final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+    private volatile AdmissionController.AdmissionRejectedException rejection;
+
+    /**
+     * Run the work on this thread with the scope active
+     * @param work DAO call to run
+     * @return the work's result
+     */
+    public <T> T call(Supplier<T> work) {
+        CancellationScope previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) CURRENT.remove(); else CURRENT.set(previous);
+            statements.clear();
+        }
+    }
+
+    /**
+     * Cancel the statements running in the scope and refuse new connections.
+     * Safe to call from any thread, more than once.
+     */
+    public void cancel() {
+        cancelled = true;
+        for (Statement statement : statements) {
+            cancelQuietly(statement);
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * DAOs catch SQLExceptions and return an empty result, so the pool also
+     * records an admission rejection here for the caller to see
+     * @return the first checkout inside the scope that was refused admission, or null
+     */
+    public AdmissionController.AdmissionRejectedException getRejection() {
+        return rejection;
+    }
+
+    /**
+     * Called by the pool for each statement a leased connection creates
+     */
+    static void register(Statement statement) {
+        CancellationScope scope = CURRENT.get();
+        if (scope == null) return;
+        scope.statements.add(statement);
+        if (scope.cancelled) {
+            cancelQuietly(statement);
+        }
+    }
+
+    /**
+     * Called by the pool when admission control turns a checkout away
+     */
+    static void rejected(AdmissionController.AdmissionRejectedException e) {
+        CancellationScope scope = CURRENT.get();
+        if (scope != null && scope.rejection == null) scope.rejection = e;
+    }
+
+    /**
+     * Called by the pool before a connection is borrowed
+     * @throws SQLException if the current scope has been cancelled
+     */
+    static void checkNotCancelled() throws SQLException {
+        CancellationScope scope = CURRENT.get();
+        if (scope != null && scope.cancelled) {
+            throw new SQLException("Cancelled before a connection was borrowed", CANCELLED_STATE);
+        }
+    }
+
+    private static void cancelQuietly(Statement statement) {
+        try {
+            statement.cancel();
+        } catch (SQLException e) {
+            // already closed or the driver cannot cancel; the statement ends on its own
+        }
+    }
+}
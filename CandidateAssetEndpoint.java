@@ -0,0 +1,114 @@
+package services;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import utils.VirtualThreads;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * HTTP view of a {@link CandidateAssetService}:
+ * GET /candidates/{id}/symbol, /candidates/{id}/photo and
+ * /candidates/{id}/description return the file with its ETag, or 304 Not
+ * Modified when If-None-Match names the current one. HEAD is supported.
+ */
+public final class CandidateAssetEndpoint implements AutoCloseable {
+
+    private static final String PREFIX = "/candidates/";
+
+    private final CandidateAssetService assets;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private CandidateAssetEndpoint(CandidateAssetService assets, HttpServer server, ExecutorService executor) {
+        this.assets = assets;
+        this.server = server;
+        this.executor = executor;
+    }
+
+    /**
+     * Start serving candidate files on the given port
+     * @param port TCP port; 0 picks a free one
+     * @return the running endpoint; close() stops it
+     * @throws IOException if the port cannot be bound
+     */
+    public static CandidateAssetEndpoint start(CandidateAssetService assets, int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("candidate-assets");
+        CandidateAssetEndpoint endpoint = new CandidateAssetEndpoint(assets, server, executor);
+        server.createContext(PREFIX, endpoint::handle);
+        server.setExecutor(executor);
+        server.start();
+        return endpoint;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            boolean head = "HEAD".equals(method);
+            if (!head && !"GET".equals(method)) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            CandidateAssetService.Asset asset = find(exchange.getRequestURI().getPath());
+            if (asset == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            exchange.getResponseHeaders().set("ETag", asset.getETag());
+            // Paths change when a candidate is edited, so clients revalidate every time
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            if (asset.matches(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", asset.getContentType());
+            // Uploaded files: no sniffing them into HTML, no scripts in SVGs
+            exchange.getResponseHeaders().set("X-Content-Type-Options", "nosniff");
+            exchange.getResponseHeaders().set("Content-Security-Policy", "default-src 'none'; sandbox");
+            if (head) {
+                exchange.getResponseHeaders().set("Content-Length", Integer.toString(asset.getLength()));
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            // 0 would mean chunked; -1 means no body
+            exchange.sendResponseHeaders(200, asset.getLength() > 0 ? asset.getLength() : -1);
+            try (OutputStream out = exchange.getResponseBody()) {
+                asset.writeTo(out);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /** Asset named by /candidates/{id}/{kind}, or null */
+    private CandidateAssetService.Asset find(String path) {
+        String[] parts = path.substring(PREFIX.length()).split("/");
+        if (parts.length != 2) return null;
+        try {
+            int candidateId = Integer.parseInt(parts[0]);
+            CandidateAssetService.Kind kind = CandidateAssetService.Kind.valueOf(parts[1].toUpperCase(Locale.ROOT));
+            return assets.getAsset(candidateId, kind);
+        } catch (IllegalArgumentException e) {
+            // not a number or not a kind
+            return null;
+        }
+    }
+}
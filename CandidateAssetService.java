@@ -0,0 +1,349 @@
+package services;
+
+import dao.CandidateDAO;
+import dao.CandidateEvents;
+import models.Candidate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Candidate symbol, photo and description files, read from disk once and
+ * served from memory.
+ *
+ * Files are cached per candidate and kind in an LRU bounded by total bytes.
+ * Small files are read onto the heap; files of at least the map threshold
+ * are memory-mapped, so they live in the page cache instead of the heap.
+ * Every {@link Asset} hands out read-only views of the same buffer, never a
+ * copy, and carries a SHA-256 ETag for If-None-Match.
+ *
+ * Only approved candidates' files are served, and only files inside the
+ * asset root: relative paths are resolved against it, and every path,
+ * absolute or not, must still be inside it once symlinks are followed.
+ * Markup is served as plain text. Entries are dropped when CandidateDAO
+ * reports a candidate updated or deleted. Files are expected to be replaced
+ * by a new path, not rewritten in place; call invalidate() if one is.
+ */
+public class CandidateAssetService implements AutoCloseable {
+
+    /**
+     * Which of a candidate's files
+     */
+    public enum Kind {
+        SYMBOL, PHOTO, DESCRIPTION;
+
+        String pathOf(Candidate c) {
+            switch (this) {
+                case SYMBOL: return c.getSymbolFilename();
+                case PHOTO: return c.getPhotoPath();
+                default: return c.getDescriptionPath();
+            }
+        }
+    }
+
+    /**
+     * One loaded file. Immutable.
+     */
+    public static final class Asset {
+        private final int candidateId;
+        private final Kind kind;
+        private final Path file;
+        private final byte[] bytes;
+        private final ByteBuffer content;
+        private final String etag;
+        private final String contentType;
+
+        Asset(int candidateId, Kind kind, Path file, byte[] bytes, ByteBuffer content, String etag) {
+            this.candidateId = candidateId;
+            this.kind = kind;
+            this.file = file;
+            this.bytes = bytes;
+            this.content = content.asReadOnlyBuffer();
+            this.etag = etag;
+            this.contentType = contentType(file);
+        }
+
+        public int getCandidateId() { return candidateId; }
+        public Kind getKind() { return kind; }
+        public Path getFile() { return file; }
+        public int getLength() { return content.remaining(); }
+        /** Quoted SHA-256 of the content, ready for an ETag header */
+        public String getETag() { return etag; }
+        public String getContentType() { return contentType; }
+        /** True if the file is memory-mapped rather than on the heap */
+        public boolean isMapped() { return bytes == null; }
+
+        /**
+         * @return read-only view of the content with its own position
+         */
+        public ByteBuffer getContent() {
+            return content.duplicate();
+        }
+
+        /**
+         * Write the content without copying it to a new buffer first
+         */
+        public void writeTo(OutputStream out) throws IOException {
+            if (bytes != null) {
+                out.write(bytes);
+                return;
+            }
+            WritableByteChannel channel = Channels.newChannel(out);
+            ByteBuffer view = getContent();
+            while (view.hasRemaining()) channel.write(view);
+        }
+
+        /**
+         * @param ifNoneMatch value of an If-None-Match header, may be null
+         * @return true if the client's copy is current and a 304 can be sent
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) return false;
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                if (tag.startsWith("W/")) tag = tag.substring(2);
+                if (tag.equals("*") || tag.equals(etag)) return true;
+            }
+            return false;
+        }
+    }
+
+    private final CandidateDAO candidateDAO;
+    private final Path root;
+    private final long maxBytes;
+    private final int mapThreshold;
+    private final CandidateEvents.Listener listener = this::invalidate;
+    private final AtomicLong generation = new AtomicLong();
+
+    // Guarded by this; access order, eldest first
+    private final LinkedHashMap<Long, Asset> cache = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param candidateDAO source of the candidates' paths; a CachedCandidateDAO avoids a query per miss
+     * @param root directory relative paths are resolved against
+     * @param maxBytes most bytes kept cached; a larger file is served but not kept
+     * @param mapThreshold files of at least this many bytes are memory-mapped
+     * @throws IOException if the asset root does not exist
+     */
+    public CandidateAssetService(CandidateDAO candidateDAO, Path root, long maxBytes, int mapThreshold)
+            throws IOException {
+        if (maxBytes < 0 || mapThreshold < 0) {
+            throw new IllegalArgumentException("Invalid cache size: " + maxBytes + "/" + mapThreshold);
+        }
+        this.candidateDAO = candidateDAO;
+        this.root = root.toRealPath();
+        this.maxBytes = maxBytes;
+        this.mapThreshold = mapThreshold;
+        CandidateEvents.addListener(listener);
+    }
+
+    /**
+     * Get one of a candidate's files, loading it on a miss
+     * @return the asset, or null if the candidate is not approved, or its path
+     *         is missing, outside the asset root or not a readable file
+     */
+    public Asset getAsset(int candidateId, Kind kind) {
+        Long key = key(candidateId, kind);
+        synchronized (this) {
+            Asset cached = cache.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+        misses.increment();
+
+        long loadGeneration = generation.get();
+        Candidate candidate = candidateDAO.getCandidateById(candidateId);
+        if (candidate == null || !candidate.isApproved()) return null;
+        Path file = resolve(kind.pathOf(candidate));
+        if (file == null) return null;
+
+        Asset asset;
+        try {
+            asset = load(candidateId, kind, file);
+        } catch (IOException e) {
+            System.err.println("Error loading candidate asset " + file + ": " + e.getMessage());
+            return null;
+        }
+
+        synchronized (this) {
+            // An invalidation during the load means the path may already be stale
+            if (generation.get() == loadGeneration && asset.getLength() <= maxBytes) {
+                Asset replaced = cache.put(key, asset);
+                if (replaced != null) cachedBytes -= replaced.getLength();
+                cachedBytes += asset.getLength();
+                evict();
+            }
+        }
+        return asset;
+    }
+
+    /**
+     * Drop every cached file of a candidate
+     */
+    public void invalidate(int candidateId) {
+        generation.incrementAndGet();
+        synchronized (this) {
+            for (Kind kind : Kind.values()) {
+                Asset removed = cache.remove(key(candidateId, kind));
+                if (removed != null) cachedBytes -= removed.getLength();
+            }
+        }
+    }
+
+    /**
+     * Drop every cached file
+     */
+    public void clear() {
+        generation.incrementAndGet();
+        synchronized (this) {
+            cache.clear();
+            cachedBytes = 0;
+        }
+    }
+
+    /** Requests served from memory */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /** Requests that looked up the candidate and read the file */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /** Files dropped to stay within the byte limit */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    @Override
+    public void close() {
+        CandidateEvents.removeListener(listener);
+        clear();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("assets cached=%d bytes=%d/%d hits=%d misses=%d evictions=%d",
+                cache.size(), cachedBytes, maxBytes, hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    private Asset load(int candidateId, Kind kind, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large: " + size + " bytes");
+            }
+            if (size >= mapThreshold) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                return new Asset(candidateId, kind, file, null, mapped, etag(mapped));
+            }
+            byte[] bytes = new byte[(int) size];
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading
+            }
+            if (buffer.hasRemaining()) {
+                throw new IOException("File shrank while reading: " + file);
+            }
+            buffer.flip();
+            return new Asset(candidateId, kind, file, bytes, buffer, etag(buffer));
+        }
+    }
+
+    /** Drop least recently used files until the cache fits; caller holds the lock */
+    private void evict() {
+        Iterator<Map.Entry<Long, Asset>> it = cache.entrySet().iterator();
+        while (cachedBytes > maxBytes && it.hasNext()) {
+            cachedBytes -= it.next().getValue().getLength();
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Stored path as a real file under the root, or null if it is empty,
+     * malformed, missing or outside the root (symlinks included)
+     */
+    private Path resolve(String stored) {
+        if (stored == null || stored.trim().isEmpty()) return null;
+        try {
+            Path real = root.resolve(stored.trim()).toRealPath();
+            return real.startsWith(root) ? real : null;
+        } catch (InvalidPathException | IOException e) {
+            return null;
+        }
+    }
+
+    private static Long key(int candidateId, Kind kind) {
+        return ((long) candidateId << 2) | kind.ordinal();
+    }
+
+    private static String etag(ByteBuffer content) {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+        sha256.update(content.duplicate());
+        byte[] digest = sha256.digest();
+        StringBuilder sb = new StringBuilder(2 + digest.length * 2).append('"');
+        for (byte b : digest) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.append('"').toString();
+    }
+
+    private static String contentType(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        String ext = name.substring(name.lastIndexOf('.') + 1);
+        switch (ext) {
+            case "png": return "image/png";
+            case "jpg":
+            case "jpeg": return "image/jpeg";
+            case "gif": return "image/gif";
+            case "webp": return "image/webp";
+            case "svg": return "image/svg+xml";
+            // Candidate-supplied markup must not run in the app's origin
+            case "txt":
+            case "md":
+            case "html":
+            case "htm": return "text/plain; charset=utf-8";
+            case "pdf": return "application/pdf";
+            default: return "application/octet-stream";
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package models;
+
+/**
+ * Read model for the ballot: what a voter needs to pick a candidate,
+ * without photo/description paths or vote counts. Immutable.
+ */
+public class CandidateBallotEntry {
+
+    private final int candidateId;
+    private final String fullName;
+    private final String department;
+    private final String symbolFilename;
+
+    public CandidateBallotEntry(int candidateId, String fullName, String department, String symbolFilename) {
+        this.candidateId = candidateId;
+        this.fullName = fullName;
+        this.department = department;
+        this.symbolFilename = symbolFilename;
+    }
+
+    public int getCandidateId() { return candidateId; }
+    public String getFullName() { return fullName; }
+    public String getDepartment() { return department; }
+    public String getSymbolFilename() { return symbolFilename; }
+}
@@ -1,17 +1,31 @@
 package dao;
 
 import models.Candidate;
+import models.CandidateBallotEntry;
+import models.CandidateFilter;
+import models.CandidateSummary;
+import models.Page;
 import utils.DatabaseConnection;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * DAO class for managing Candidate data
  */
 public class CandidateDAO {
 
+    /** Columns of {@link CandidateBallotEntry}, in the order extractBallotEntry reads them */
+    private static final String BALLOT_COLUMNS = "candidate_id, name, dept, symbol_filename";
+
+    /** Columns of {@link CandidateSummary}, in the order extractSummary reads them */
+    private static final String SUMMARY_COLUMNS =
+            "candidate_id, rollno, name, dept, symbol_filename, is_approved, vote_count";
+
     /**
      * Register a new candidate
      */
@@ -19,7 +33,7 @@ public class CandidateDAO {
         String sql = "INSERT INTO candidates (rollno, name, dept, symbol_filename, photo_path, description_path, is_approved, vote_count) " +
                 "VALUES (?, ?, ?, ?, ?, ?, FALSE, 0)";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnection("CandidateDAO.registerCandidate");
              PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             ps.setString(1, candidate.getRollNumber());
@@ -33,6 +47,7 @@ public class CandidateDAO {
             if (rows > 0) {
                 ResultSet rs = ps.getGeneratedKeys();
                 if (rs.next()) candidate.setCandidateId(rs.getInt(1));
+                BallotCache.invalidate();
                 return true;
             }
 
@@ -49,7 +64,7 @@ public class CandidateDAO {
         List<Candidate> list = new ArrayList<>();
         String sql = "SELECT * FROM candidates ORDER BY name ASC";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection("CandidateDAO.getAllCandidates");
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -67,7 +82,7 @@ public class CandidateDAO {
     public Candidate getCandidateById(int candidateId) {
         String sql = "SELECT * FROM candidates WHERE candidate_id = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnection("CandidateDAO.getCandidateById");
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, candidateId);
@@ -90,7 +105,7 @@ public class CandidateDAO {
         List<Candidate> list = new ArrayList<>();
         String sql = "SELECT * FROM candidates WHERE is_approved = FALSE";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnection("CandidateDAO.getPendingCandidates");
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
@@ -106,19 +121,120 @@ public class CandidateDAO {
      * Get all approved candidates
      */
     public List<Candidate> getApprovedCandidates() {
+        try {
+            return queryApprovedCandidates();
+        } catch (SQLException e) {
+            System.err.println("❌ Error fetching approved candidates: " + e.getMessage());
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Get the ballot: approved candidates with only the columns a voter sees
+     */
+    public List<CandidateBallotEntry> getBallot() {
+        List<CandidateBallotEntry> list = new ArrayList<>();
+        String sql = "SELECT " + BALLOT_COLUMNS + " FROM candidates WHERE is_approved = TRUE";
+
+        try (Connection conn = DatabaseConnection.getConnection("CandidateDAO.getBallot");
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+
+            while (rs.next()) list.add(extractBallotEntry(rs));
+
+        } catch (SQLException e) {
+            System.err.println("❌ Error fetching ballot: " + e.getMessage());
+        }
+        return list;
+    }
+
+    /**
+     * Load approved candidates, reporting failures to the caller (used to build the ballot cache)
+     */
+    List<Candidate> queryApprovedCandidates() throws SQLException {
         List<Candidate> list = new ArrayList<>();
         String sql = "SELECT * FROM candidates WHERE is_approved = TRUE";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnection("CandidateDAO.getApprovedCandidates");
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
             while (rs.next()) list.add(extractCandidate(rs));
+        }
+        return list;
+    }
+
+    /**
+     * One page of candidates ordered by name, then ID (keyset pagination).
+     * Pass null as the cursor for the first page, then the page's nextCursor.
+     * @throws IllegalArgumentException if pageSize is not positive or the cursor is malformed
+     */
+    public Page<CandidateSummary> getCandidatesPage(CandidateFilter filter, String cursor, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Invalid page size: " + pageSize);
+        }
+
+        // Cursor format: "<candidate_id>:<name>", or just "<candidate_id>" when the name is NULL
+        int afterId = 0;
+        String afterName = null;
+        if (cursor != null) {
+            int sep = cursor.indexOf(':');
+            try {
+                afterId = Integer.parseInt(sep < 0 ? cursor : cursor.substring(0, sep));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid candidate cursor: " + cursor);
+            }
+            if (sep >= 0) afterName = cursor.substring(sep + 1);
+        }
+
+        List<Object> params = new ArrayList<>();
+        String where = filterClause(filter, params);
+
+        String key = "candidates|" + (filter == null ? "" : filter.key());
+        long total = CountEstimates.get(key, "SELECT COUNT(*) FROM candidates" + where, params);
+
+        // NULL names sort first in ascending order (MySQL and H2 alike), so
+        // after a NULL name come the remaining NULL names, then every other name
+        String after = "";
+        if (cursor != null) {
+            after = afterName == null
+                    ? " AND (name IS NOT NULL OR candidate_id > ?)"
+                    : " AND (name > ? OR (name = ? AND candidate_id > ?))";
+        }
+        String sql = "SELECT " + SUMMARY_COLUMNS + " FROM candidates" + where + after
+                + " ORDER BY name ASC, candidate_id ASC LIMIT ?";
+        List<CandidateSummary> list = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnection.getReadConnection("CandidateDAO.getCandidatesPage");
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            int i = 1;
+            for (Object p : params) ps.setObject(i++, p);
+            if (cursor != null) {
+                if (afterName != null) {
+                    ps.setString(i++, afterName);
+                    ps.setString(i++, afterName);
+                }
+                ps.setInt(i++, afterId);
+            }
+            ps.setInt(i, pageSize + 1);
+
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) list.add(extractSummary(rs));
 
         } catch (SQLException e) {
-            System.err.println("❌ Error fetching approved candidates: " + e.getMessage());
+            System.err.println("❌ Error fetching candidate page: " + e.getMessage());
         }
-        return list;
+
+        String next = null;
+        if (list.size() > pageSize) {
+            list.remove(pageSize);
+            CandidateSummary last = list.get(pageSize - 1);
+            next = last.getFullName() == null
+                    ? String.valueOf(last.getCandidateId())
+                    : last.getCandidateId() + ":" + last.getFullName();
+        }
+        return new Page<>(list, next, total);
     }
 
     /**
@@ -126,11 +242,13 @@ public class CandidateDAO {
      */
     public boolean approveCandidate(int candidateId) {
         String sql = "UPDATE candidates SET is_approved = TRUE WHERE candidate_id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnection("CandidateDAO.approveCandidate");
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, candidateId);
-            return ps.executeUpdate() > 0;
+            boolean updated = ps.executeUpdate() > 0;
+            if (updated) BallotCache.invalidate();
+            return updated;
 
         } catch (SQLException e) {
             System.err.println("❌ Error approving candidate: " + e.getMessage());
@@ -143,11 +261,16 @@ public class CandidateDAO {
      */
     public boolean deleteCandidate(int candidateId) {
         String sql = "DELETE FROM candidates WHERE candidate_id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnection("CandidateDAO.deleteCandidate");
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, candidateId);
-            return ps.executeUpdate() > 0;
+            boolean updated = ps.executeUpdate() > 0;
+            if (updated) {
+                BallotCache.invalidate();
+                CandidateEvents.candidateChanged(candidateId);
+            }
+            return updated;
 
         } catch (SQLException e) {
             System.err.println("❌ Error deleting candidate: " + e.getMessage());
@@ -160,7 +283,7 @@ public class CandidateDAO {
      */
     public boolean updateCandidate(Candidate candidate) {
         String sql = "UPDATE candidates SET name = ?, dept = ?, photo_path = ?, description_path = ? WHERE candidate_id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnection("CandidateDAO.updateCandidate");
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setString(1, candidate.getFullName());
@@ -168,7 +291,12 @@ public class CandidateDAO {
             ps.setString(3, candidate.getPhotoPath());
             ps.setString(4, candidate.getDescriptionPath());
             ps.setInt(5, candidate.getCandidateId());
-            return ps.executeUpdate() > 0;
+            boolean updated = ps.executeUpdate() > 0;
+            if (updated) {
+                BallotCache.invalidate();
+                CandidateEvents.candidateChanged(candidate.getCandidateId());
+            }
+            return updated;
 
         } catch (SQLException e) {
             System.err.println("❌ Error updating candidate: " + e.getMessage());
@@ -176,13 +304,72 @@ public class CandidateDAO {
         }
     }
 
+    /**
+     * Approve many pending candidates in one transaction; returns the IDs that were approved
+     */
+    public List<Integer> approveCandidates(Collection<Integer> candidateIds) {
+        List<Integer> approved = new ArrayList<>();
+        try {
+            approved = BulkStatements.apply(candidateIds,
+                    "SELECT candidate_id FROM candidates WHERE candidate_id IN (%s) AND is_approved = FALSE FOR UPDATE",
+                    "UPDATE candidates SET is_approved = TRUE WHERE candidate_id IN (%s)",
+                    rs -> rs.getInt(1));
+        } catch (SQLException e) {
+            System.err.println("❌ Error approving candidates: " + e.getMessage());
+        }
+
+        if (!approved.isEmpty()) invalidateCaches();
+        return approved;
+    }
+
+    /**
+     * Approve every pending candidate matching the filter (e.g. one department); returns the IDs approved
+     */
+    public List<Integer> approvePendingCandidates(CandidateFilter filter) {
+        CandidateFilter pending = new CandidateFilter(filter == null ? null : filter.getDepartment(), false);
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT candidate_id FROM candidates" + filterClause(pending, params);
+        List<Integer> ids = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnection.getConnection("CandidateDAO.approvePendingCandidates");
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            for (int i = 0; i < params.size(); i++) ps.setObject(i + 1, params.get(i));
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) ids.add(rs.getInt(1));
+
+        } catch (SQLException e) {
+            System.err.println("❌ Error fetching pending candidates: " + e.getMessage());
+        }
+        return approveCandidates(ids);
+    }
+
+    /**
+     * Delete many candidates in one transaction; returns the IDs that were deleted
+     */
+    public List<Integer> deleteCandidates(Collection<Integer> candidateIds) {
+        List<Integer> deleted = new ArrayList<>();
+        try {
+            deleted = BulkStatements.apply(candidateIds,
+                    "SELECT candidate_id FROM candidates WHERE candidate_id IN (%s) FOR UPDATE",
+                    "DELETE FROM candidates WHERE candidate_id IN (%s)",
+                    rs -> rs.getInt(1));
+        } catch (SQLException e) {
+            System.err.println("❌ Error deleting candidates: " + e.getMessage());
+        }
+
+        if (!deleted.isEmpty()) invalidateCaches();
+        for (int id : deleted) CandidateEvents.candidateChanged(id);
+        return deleted;
+    }
+
     /**
      * Increase vote count by 1 (CRITICAL FOR VOTING)
      */
     public boolean incrementVoteCount(int candidateId) {
         String sql = "UPDATE candidates SET vote_count = vote_count + 1 WHERE candidate_id = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnection("CandidateDAO.incrementVoteCount");
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, candidateId);
@@ -194,6 +381,94 @@ public class CandidateDAO {
         return false;
     }
 
+    /**
+     * Add accumulated vote deltas (candidate ID -> votes) to vote_count in one batched transaction
+     */
+    public boolean addVoteCounts(Map<Integer, Long> deltas) {
+        String sql = "UPDATE candidates SET vote_count = vote_count + ? WHERE candidate_id = ?";
+
+        try (Connection conn = DatabaseConnection.getConnection("CandidateDAO.addVoteCounts")) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (Map.Entry<Integer, Long> e : deltas.entrySet()) {
+                    ps.setLong(1, e.getValue());
+                    ps.setInt(2, e.getKey());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                conn.commit();
+                return true;
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+
+        } catch (SQLException e) {
+            System.err.println("❌ Error flushing vote counts: " + e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Recompute vote_count for every candidate from the votes table.
+     * Returns candidate ID -> reconciled count, or null on failure.
+     */
+    public Map<Integer, Integer> reconcileVoteCounts() {
+        String updateSql = "UPDATE candidates c SET vote_count = "
+                + "(SELECT COUNT(*) FROM votes v WHERE v.candidate_id = c.candidate_id)";
+        String selectSql = "SELECT candidate_id, vote_count FROM candidates";
+        Map<Integer, Integer> counts = new HashMap<>();
+
+        try (Connection conn = DatabaseConnection.getConnection("CandidateDAO.reconcileVoteCounts")) {
+            conn.setAutoCommit(false);
+
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(updateSql);
+                try (ResultSet rs = stmt.executeQuery(selectSql)) {
+                    while (rs.next()) counts.put(rs.getInt(1), rs.getInt(2));
+                }
+                conn.commit();
+                return counts;
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+
+        } catch (SQLException e) {
+            System.err.println("❌ Error reconciling vote counts: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Build a WHERE clause for the filter, appending its values to params
+     */
+    private String filterClause(CandidateFilter filter, List<Object> params) {
+        StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+        if (filter == null) return where.toString();
+
+        if (filter.getDepartment() != null) {
+            where.append(" AND dept = ?");
+            params.add(filter.getDepartment());
+        }
+        if (filter.getApproved() != null) {
+            where.append(" AND is_approved = ?");
+            params.add(filter.getApproved());
+        }
+        return where.toString();
+    }
+
+    /**
+     * Drop cached data that depends on candidate approval (once per batch)
+     */
+    private void invalidateCaches() {
+        BallotCache.invalidate();
+        CountEstimates.invalidate("candidates");
+    }
+
     /**
      * Extract candidate object from ResultSet
      */
@@ -210,4 +485,19 @@ public class CandidateDAO {
         c.setVoteCount(rs.getInt("vote_count"));
         return c;
     }
+
+    /**
+     * Map a row selected with BALLOT_COLUMNS, by column index
+     */
+    private CandidateBallotEntry extractBallotEntry(ResultSet rs) throws SQLException {
+        return new CandidateBallotEntry(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4));
+    }
+
+    /**
+     * Map a row selected with SUMMARY_COLUMNS, by column index
+     */
+    private CandidateSummary extractSummary(ResultSet rs) throws SQLException {
+        return new CandidateSummary(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                rs.getString(5), rs.getBoolean(6), rs.getInt(7));
+    }
 }
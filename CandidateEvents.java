@@ -0,0 +1,50 @@
+package dao;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Process-wide notifications of committed candidate changes.
+ *
+ * CandidateDAO publishes after a candidate's record is updated or the
+ * candidate is deleted, so anything derived from the record (such as the
+ * files its symbol, photo and description paths point to) can be dropped.
+ * Listeners run on the writing thread, so they must be quick and must not
+ * call back into the database.
+ */
+public final class CandidateEvents {
+
+    /**
+     * Receiver of candidate changes
+     */
+    public interface Listener {
+
+        /**
+         * A candidate was updated or deleted
+         */
+        void candidateChanged(int candidateId);
+    }
+
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private CandidateEvents() {
+    }
+
+    public static void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    static void candidateChanged(int candidateId) {
+        for (Listener l : listeners) {
+            try {
+                l.candidateChanged(candidateId);
+            } catch (RuntimeException e) {
+                System.err.println("Candidate listener failed: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package models;
+
+/**
+ * Optional filters for admin candidate listings; null fields are ignored
+ */
+public class CandidateFilter {
+
+    private String department;
+    private Boolean approved;
+
+    public CandidateFilter() {
+    }
+
+    public CandidateFilter(String department, Boolean approved) {
+        this.department = department;
+        this.approved = approved;
+    }
+
+    public String getDepartment() { return department; }
+    public void setDepartment(String department) { this.department = department; }
+
+    public Boolean getApproved() { return approved; }
+    public void setApproved(Boolean approved) { this.approved = approved; }
+
+    /** Stable key identifying this filter combination */
+    public String key() {
+        return department + "|" + approved;
+    }
+}
@@ -0,0 +1,35 @@
+package models;
+
+/**
+ * Read model for candidate listings: the columns a list row shows, without
+ * the photo and description paths. Immutable.
+ */
+public class CandidateSummary {
+
+    private final int candidateId;
+    private final String rollNumber;
+    private final String fullName;
+    private final String department;
+    private final String symbolFilename;
+    private final boolean approved;
+    private final int voteCount;
+
+    public CandidateSummary(int candidateId, String rollNumber, String fullName, String department,
+                            String symbolFilename, boolean approved, int voteCount) {
+        this.candidateId = candidateId;
+        this.rollNumber = rollNumber;
+        this.fullName = fullName;
+        this.department = department;
+        this.symbolFilename = symbolFilename;
+        this.approved = approved;
+        this.voteCount = voteCount;
+    }
+
+    public int getCandidateId() { return candidateId; }
+    public String getRollNumber() { return rollNumber; }
+    public String getFullName() { return fullName; }
+    public String getDepartment() { return department; }
+    public String getSymbolFilename() { return symbolFilename; }
+    public boolean isApproved() { return approved; }
+    public int getVoteCount() { return voteCount; }
+}
@@ -0,0 +1,518 @@
+package utils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded JDBC connection pool.
+ *
+ * Connections handed out are proxies: calling close() returns the physical
+ * connection to the pool instead of closing it, so DAOs keep using
+ * try-with-resources exactly as before. Each checkout is also recorded in
+ * {@link DaoMetrics} against the DAO method that made it, and statements
+ * created inside a {@link CancellationScope} are registered with it.
+ * With admission control on, checkouts first pass an
+ * {@link AdmissionController} that orders them by the operation's priority.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    /**
+     * Pool settings
+     */
+    public static class Config {
+        private String url;
+        private String user;
+        private String password;
+        private int minSize = 2;
+        private int maxSize = 20;
+        private long acquireTimeoutMillis = 5_000;
+        private long validateAfterIdleMillis = 30_000;
+        private int validationTimeoutSeconds = 2;
+        private long idleTimeoutMillis = 600_000;
+        private long leakDetectionThresholdMillis = 0;
+        private long housekeepingIntervalMillis = 5_000;
+        private boolean admissionControl;
+
+        public Config(String url, String user, String password) {
+            this.url = url;
+            this.user = user;
+            this.password = password;
+        }
+
+        public Config minSize(int minSize) { this.minSize = minSize; return this; }
+        public Config maxSize(int maxSize) { this.maxSize = maxSize; return this; }
+        public Config acquireTimeoutMillis(long millis) { this.acquireTimeoutMillis = millis; return this; }
+        public Config validateAfterIdleMillis(long millis) { this.validateAfterIdleMillis = millis; return this; }
+        public Config validationTimeoutSeconds(int seconds) { this.validationTimeoutSeconds = seconds; return this; }
+        public Config idleTimeoutMillis(long millis) { this.idleTimeoutMillis = millis; return this; }
+        /**
+         * Report connections held longer than this, with where they were
+         * borrowed. Captures a stack trace on every checkout, so enable it
+         * to hunt a leak. 0, the default, disables leak detection.
+         */
+        public Config leakDetectionThresholdMillis(long millis) { this.leakDetectionThresholdMillis = millis; return this; }
+        public Config housekeepingIntervalMillis(long millis) { this.housekeepingIntervalMillis = millis; return this; }
+        /** Admit checkouts by priority class; see {@link AdmissionController#forPoolSize(int)} */
+        public Config admissionControl(boolean enabled) { this.admissionControl = enabled; return this; }
+
+        public String getUrl() { return url; }
+        public String getUser() { return user; }
+        public int getMinSize() { return minSize; }
+        public int getMaxSize() { return maxSize; }
+        public long getAcquireTimeoutMillis() { return acquireTimeoutMillis; }
+        public long getLeakDetectionThresholdMillis() { return leakDetectionThresholdMillis; }
+    }
+
+    /**
+     * Point-in-time view of pool health and sizing
+     */
+    public static class Stats {
+        private final int active;
+        private final int idle;
+        private final int total;
+        private final int waiting;
+        private final int maxSize;
+        private final long acquired;
+        private final long timeouts;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+        private final long created;
+        private final long destroyed;
+        private final long validationFailures;
+        private final long leaksDetected;
+
+        Stats(int active, int idle, int total, int waiting, int maxSize, long acquired, long timeouts,
+              long totalWaitNanos, long maxWaitNanos, long created, long destroyed,
+              long validationFailures, long leaksDetected) {
+            this.active = active;
+            this.idle = idle;
+            this.total = total;
+            this.waiting = waiting;
+            this.maxSize = maxSize;
+            this.acquired = acquired;
+            this.timeouts = timeouts;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.created = created;
+            this.destroyed = destroyed;
+            this.validationFailures = validationFailures;
+            this.leaksDetected = leaksDetected;
+        }
+
+        public int getActive() { return active; }
+        public int getIdle() { return idle; }
+        public int getTotal() { return total; }
+        public int getWaiting() { return waiting; }
+        public int getMaxSize() { return maxSize; }
+        public long getAcquired() { return acquired; }
+        public long getTimeouts() { return timeouts; }
+        public long getCreated() { return created; }
+        public long getDestroyed() { return destroyed; }
+        public long getValidationFailures() { return validationFailures; }
+        public long getLeaksDetected() { return leaksDetected; }
+
+        public double getAverageWaitMillis() {
+            return acquired == 0 ? 0 : totalWaitNanos / (double) acquired / 1_000_000d;
+        }
+
+        public double getMaxWaitMillis() {
+            return maxWaitNanos / 1_000_000d;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("active=%d idle=%d total=%d/%d waiting=%d acquired=%d timeouts=%d "
+                            + "avgWait=%.2fms maxWait=%.2fms created=%d destroyed=%d invalid=%d leaks=%d",
+                    active, idle, total, maxSize, waiting, acquired, timeouts, getAverageWaitMillis(),
+                    getMaxWaitMillis(), created, destroyed, validationFailures, leaksDetected);
+        }
+    }
+
+    private final Config config;
+    private final Semaphore permits;
+    private final AdmissionController admission;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<Lease> leased = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger total = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder destroyed = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder leaksDetected = new LongAdder();
+
+    public ConnectionPool(Config config) {
+        if (config.minSize < 0 || config.maxSize < 1 || config.minSize > config.maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + config.minSize + ", max=" + config.maxSize);
+        }
+        this.config = config;
+        this.permits = new Semaphore(config.maxSize, true);
+        this.admission = config.admissionControl ? AdmissionController.forPoolSize(config.maxSize) : null;
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        fillToMinimum();
+        housekeeper.scheduleWithFixedDelay(this::housekeep, config.housekeepingIntervalMillis,
+                config.housekeepingIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection, waiting at most the configured acquire timeout
+     * @return pooled connection; close() returns it to the pool
+     * @throws SQLException if the pool is exhausted or a connection cannot be opened
+     */
+    public Connection getConnection() throws SQLException {
+        return getConnection(null);
+    }
+
+    /**
+     * Borrow a connection on behalf of a named DAO operation
+     * @param operation "Class.method" the checkout is recorded under in {@link DaoMetrics};
+     *                  null to look it up from the call stack
+     * @return pooled connection; close() returns it to the pool
+     * @throws SQLException if the pool is exhausted or a connection cannot be opened
+     */
+    public Connection getConnection(String operation) throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        CancellationScope.checkNotCancelled();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(config.acquireTimeoutMillis);
+        DaoMetrics.Call call = DaoMetrics.begin(operation, start);
+
+        AdmissionController.Priority priority = null;
+        if (admission != null) {
+            priority = admission.classify(operation != null ? operation : call != null ? call.operationName() : null);
+            try {
+                admission.acquire(priority, deadline - start);
+            } catch (AdmissionController.AdmissionRejectedException e) {
+                CancellationScope.rejected(e);
+                recordWait(start);
+                if (call != null) call.acquireFailed();
+                throw e;
+            }
+        }
+
+        boolean permitted;
+        try {
+            permitted = permits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (priority != null) admission.release(priority);
+            if (call != null) call.acquireFailed();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        if (!permitted) {
+            if (priority != null) admission.release(priority);
+            timeouts.increment();
+            recordWait(start);
+            if (call != null) call.acquireFailed();
+            throw new SQLTransientConnectionException("Timed out after " + config.acquireTimeoutMillis
+                    + " ms waiting for a database connection (" + getStats() + ")");
+        }
+
+        try {
+            PooledConnection pc = takeIdleOrCreate(deadline);
+            Lease lease = new Lease(pc, call, priority);
+            leased.add(lease);
+            acquired.increment();
+            recordWait(start);
+            if (call != null) call.acquired();
+            return lease.proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            if (priority != null) admission.release(priority);
+            if (call != null) call.acquireFailed();
+            throw e;
+        }
+    }
+
+    /**
+     * @return current pool statistics
+     */
+    public Stats getStats() {
+        return new Stats(leased.size(), idle.size(), total.get(), permits.getQueueLength(), config.maxSize,
+                acquired.sum(), timeouts.sum(), totalWaitNanos.sum(), maxWaitNanos.get(), created.sum(),
+                destroyed.sum(), validationFailures.sum(), leaksDetected.sum());
+    }
+
+    public Config getConfig() {
+        return config;
+    }
+
+    /**
+     * @return the pool's admission controller, or null if admission control is off
+     */
+    public AdmissionController getAdmission() {
+        return admission;
+    }
+
+    /**
+     * Close idle connections and stop housekeeping. Leased connections are
+     * closed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            destroy(pc);
+        }
+    }
+
+    // ==========================================================
+    //                       INTERNALS
+    // ==========================================================
+
+    private PooledConnection takeIdleOrCreate(long deadline) throws SQLException {
+        while (true) {
+            PooledConnection pc = idle.pollFirst();
+            if (pc != null) {
+                if (validate(pc)) return pc;
+                continue;
+            }
+            if (reserveSlot()) {
+                return open();
+            }
+            // Another thread is opening the last slot; wait for it to land in the idle queue
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                timeouts.increment();
+                throw new SQLTransientConnectionException("Timed out waiting for a database connection");
+            }
+            try {
+                pc = idle.pollFirst(remaining, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database connection", e);
+            }
+            if (pc != null && validate(pc)) return pc;
+        }
+    }
+
+    private boolean reserveSlot() {
+        int current;
+        do {
+            current = total.get();
+            if (current >= config.maxSize) return false;
+        } while (!total.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /** Open a physical connection for a slot already reserved in {@code total} */
+    private PooledConnection open() throws SQLException {
+        try {
+            Connection physical = DriverManager.getConnection(config.url, config.user, config.password);
+            created.increment();
+            return new PooledConnection(physical);
+        } catch (SQLException | RuntimeException e) {
+            total.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private boolean validate(PooledConnection pc) {
+        long idleFor = System.currentTimeMillis() - pc.lastReturnedAt;
+        if (idleFor < config.validateAfterIdleMillis) return true;
+        try {
+            if (pc.physical.isValid(config.validationTimeoutSeconds)) return true;
+        } catch (SQLException ignored) {
+            // treated as invalid below
+        }
+        validationFailures.increment();
+        destroy(pc);
+        return false;
+    }
+
+    private void release(Lease lease) {
+        leased.remove(lease);
+        if (lease.call != null) lease.call.end();
+        PooledConnection pc = lease.connection;
+        try {
+            if (closed || pc.broken || pc.physical.isClosed()) {
+                destroy(pc);
+                return;
+            }
+            if (!pc.physical.getAutoCommit()) {
+                pc.physical.rollback();
+                pc.physical.setAutoCommit(true);
+            }
+            pc.physical.clearWarnings();
+            pc.lastReturnedAt = System.currentTimeMillis();
+            idle.offerFirst(pc);
+        } catch (SQLException e) {
+            destroy(pc);
+        } finally {
+            permits.release();
+            if (lease.priority != null) admission.release(lease.priority);
+        }
+    }
+
+    private void destroy(PooledConnection pc) {
+        total.decrementAndGet();
+        destroyed.increment();
+        try {
+            pc.physical.close();
+        } catch (SQLException ignored) {
+            // already unusable
+        }
+    }
+
+    private void recordWait(long startNanos) {
+        long waited = System.nanoTime() - startNanos;
+        totalWaitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+    }
+
+    private void housekeep() {
+        try {
+            evictIdle();
+            fillToMinimum();
+            detectLeaks();
+        } catch (RuntimeException e) {
+            System.err.println("Connection pool housekeeping failed: " + e.getMessage());
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (PooledConnection pc : idle) {
+            if (total.get() <= config.minSize) return;
+            if (now - pc.lastReturnedAt > config.idleTimeoutMillis && idle.remove(pc)) {
+                destroy(pc);
+            }
+        }
+    }
+
+    private void fillToMinimum() {
+        while (!closed && total.get() < config.minSize && reserveSlot()) {
+            try {
+                idle.offerLast(open());
+            } catch (SQLException e) {
+                System.err.println("Error pre-opening pooled connection: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void detectLeaks() {
+        long threshold = config.leakDetectionThresholdMillis;
+        if (threshold <= 0) return;
+        long now = System.currentTimeMillis();
+        for (Lease lease : leased) {
+            if (!lease.leakReported && now - lease.borrowedAt > threshold) {
+                lease.leakReported = true;
+                leaksDetected.increment();
+                System.err.println("Possible connection leak: connection held for " + (now - lease.borrowedAt)
+                        + " ms by thread " + lease.threadName);
+                if (lease.borrowSite != null) lease.borrowSite.printStackTrace();
+            }
+        }
+    }
+
+    /** A physical connection owned by the pool */
+    private static final class PooledConnection {
+        final Connection physical;
+        volatile long lastReturnedAt = System.currentTimeMillis();
+        volatile boolean broken;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+    }
+
+    /** One checkout of a pooled connection; the proxy is dead once closed */
+    private final class Lease implements InvocationHandler {
+        final PooledConnection connection;
+        final DaoMetrics.Call call;
+        final AdmissionController.Priority priority;
+        final Connection proxy;
+        final long borrowedAt = System.currentTimeMillis();
+        final String threadName = Thread.currentThread().getName();
+        final Throwable borrowSite;
+        volatile boolean leakReported;
+        private volatile boolean returned;
+
+        Lease(PooledConnection connection, DaoMetrics.Call call, AdmissionController.Priority priority) {
+            this.connection = connection;
+            this.call = call;
+            this.priority = priority;
+            this.borrowSite = config.leakDetectionThresholdMillis > 0
+                    ? new Throwable("Connection borrowed here") : null;
+            this.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(this);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || connection.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + connection.physical + "]";
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                Object result = method.invoke(connection.physical, args);
+                if (result instanceof Statement) {
+                    CancellationScope.register((Statement) result);
+                    if (call != null) {
+                        String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                        return call.wrapStatement(result, method.getReturnType(), sql);
+                    }
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException) {
+                    if (call != null) call.failed();
+                    String state = ((SQLException) cause).getSQLState();
+                    if (state != null && state.startsWith("08")) {
+                        connection.broken = true;
+                    }
+                }
+                throw cause;
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package dao;
+
+import utils.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Short-lived cache of COUNT(*) results for paginated listings.
+ * The first page of a filter pays for the count; following pages and
+ * refreshes within the TTL reuse it.
+ */
+final class CountEstimates {
+
+    private static final long TTL_MILLIS = Long.getLong("db.countEstimateTtlMs", 30_000L);
+
+    private static final class Entry {
+        final long count;
+        final long expiresAt;
+
+        Entry(long count, long expiresAt) {
+            this.count = count;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final ConcurrentHashMap<String, Entry> CACHE = new ConcurrentHashMap<>();
+
+    private CountEstimates() {
+    }
+
+    /**
+     * Cached count for the key, running the count query when missing or expired
+     * @return row count, or -1 if it could not be computed
+     */
+    static long get(String key, String countSql, List<Object> params) {
+        Entry e = CACHE.get(key);
+        long now = System.currentTimeMillis();
+        if (e != null && e.expiresAt > now) return e.count;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(countSql)) {
+
+            for (int i = 0; i < params.size(); i++) ps.setObject(i + 1, params.get(i));
+            ResultSet rs = ps.executeQuery();
+            long count = rs.next() ? rs.getLong(1) : 0;
+            CACHE.put(key, new Entry(count, now + TTL_MILLIS));
+            return count;
+
+        } catch (SQLException ex) {
+            System.err.println("Error counting rows: " + ex.getMessage());
+        }
+        return e != null ? e.count : -1;
+    }
+
+    /**
+     * Drop cached counts whose key starts with the prefix (e.g. "voters")
+     */
+    static void invalidate(String prefix) {
+        CACHE.keySet().removeIf(k -> k.startsWith(prefix));
+    }
+}
@@ -0,0 +1,89 @@
+package utils;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal streaming CSV reader (RFC 4180 style).
+ * Reads one record at a time, so large files are never held in memory.
+ * Supports quoted fields with commas, doubled quotes and line breaks.
+ */
+public class CsvReader implements Closeable {
+
+    private final BufferedReader in;
+    private long lineNumber;
+
+    public CsvReader(Reader reader) {
+        this.in = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    /**
+     * Read the next record
+     * @return fields of the record, or null at end of input
+     * @throws IOException if reading fails or a quoted field is not terminated
+     */
+    public List<String> next() throws IOException {
+        String line = in.readLine();
+        if (line == null) return null;
+        lineNumber++;
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+
+        while (true) {
+            if (i == line.length()) {
+                if (!quoted) break;
+                // Quoted field continues on the next line
+                String more = in.readLine();
+                if (more == null) throw new IOException("Unterminated quoted field at line " + lineNumber);
+                lineNumber++;
+                field.append('\n');
+                line = more;
+                i = 0;
+                continue;
+            }
+
+            char c = line.charAt(i++);
+            if (quoted) {
+                if (c == '"') {
+                    if (i < line.length() && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * @return number of physical lines read so far
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
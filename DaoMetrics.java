@@ -0,0 +1,364 @@
+package utils;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-DAO-method latency, throughput, error and row metrics.
+ *
+ * The connection pool starts a {@link Call} for every checkout, recorded
+ * under the operation name the DAO passed to getConnection. Checkouts without
+ * a name are attributed to the outermost dao-package frame on the stack,
+ * which costs a stack walk per call. The call measures connection-acquire time, the time each
+ * statement spends executing, rows read and written, and whether any
+ * SQLException was thrown, including ones the DAO catches and only logs.
+ *
+ * Each operation is registered as a {@link DaoOperationMXBean}; a text
+ * snapshot is available from {@link #snapshot()} and {@link MetricsEndpoint}.
+ * A {@link StatementListener} can also be told about every statement a DAO
+ * executes, for tools such as the query plan check.
+ * Disable with -Ddb.metrics=false.
+ */
+public final class DaoMetrics {
+
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("db.metrics", "true"));
+
+    private static final String JMX_DOMAIN = "voting.dao";
+    private static final String DAO_PACKAGE = "dao.";
+    private static final String UNATTRIBUTED = "(other)";
+
+    private static final StackWalker WALKER = StackWalker.getInstance();
+    private static final ConcurrentHashMap<String, Operation> OPERATIONS = new ConcurrentHashMap<>();
+    private static volatile StatementListener statementListener;
+
+    /**
+     * Receiver of the statements DAOs execute
+     */
+    public interface StatementListener {
+
+        /**
+         * @param operation "Class.method" that ran the statement
+         * @param sql statement text
+         * @param parameters values bound to a prepared statement, by index; empty otherwise
+         */
+        void executed(String operation, String sql, Map<Integer, Object> parameters);
+    }
+
+    private DaoMetrics() {
+    }
+
+    /**
+     * Metrics for one DAO method
+     */
+    public static final class Operation implements DaoOperationMXBean {
+        private final String name;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LatencyHistogram acquire = new LatencyHistogram();
+        private final LatencyHistogram query = new LatencyHistogram();
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rowsReturned = new LongAdder();
+        private final LongAdder rowsUpdated = new LongAdder();
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        public String getName() { return name; }
+
+        /** Acquire plus hold time of the connection, per call */
+        public LatencyHistogram getLatency() { return latency; }
+        public LatencyHistogram getAcquire() { return acquire; }
+        /** Execution time of individual statements */
+        public LatencyHistogram getQuery() { return query; }
+
+        @Override public long getCalls() { return calls.sum(); }
+        @Override public long getErrors() { return errors.sum(); }
+        @Override public long getRowsReturned() { return rowsReturned.sum(); }
+        @Override public long getRowsUpdated() { return rowsUpdated.sum(); }
+        @Override public double getLatencyMeanMillis() { return latency.getMeanMillis(); }
+        @Override public double getLatencyP50Millis() { return latency.getPercentileMillis(0.50); }
+        @Override public double getLatencyP99Millis() { return latency.getPercentileMillis(0.99); }
+        @Override public double getLatencyP999Millis() { return latency.getPercentileMillis(0.999); }
+        @Override public double getLatencyMaxMillis() { return latency.getMaxMillis(); }
+        @Override public double getAcquireP50Millis() { return acquire.getPercentileMillis(0.50); }
+        @Override public double getAcquireP99Millis() { return acquire.getPercentileMillis(0.99); }
+        @Override public double getAcquireMaxMillis() { return acquire.getMaxMillis(); }
+        @Override public long getQueries() { return query.getCount(); }
+        @Override public double getQueryP50Millis() { return query.getPercentileMillis(0.50); }
+        @Override public double getQueryP99Millis() { return query.getPercentileMillis(0.99); }
+        @Override public double getQueryP999Millis() { return query.getPercentileMillis(0.999); }
+
+        @Override
+        public void reset() {
+            latency.reset();
+            acquire.reset();
+            query.reset();
+            calls.reset();
+            errors.reset();
+            rowsReturned.reset();
+            rowsUpdated.reset();
+        }
+    }
+
+    /**
+     * One connection checkout, from the start of the acquire until close()
+     */
+    static final class Call {
+        private final Operation op;
+        private final long startNanos;
+        private volatile boolean failed;
+
+        private Call(Operation op, long startNanos) {
+            this.op = op;
+            this.startNanos = startNanos;
+        }
+
+        /** "Class.method" the call is recorded under */
+        String operationName() {
+            return op.getName();
+        }
+
+        void acquired() {
+            op.acquire.record(System.nanoTime() - startNanos);
+        }
+
+        /** The pool could not hand out a connection; counts as a failed call */
+        void acquireFailed() {
+            acquired();
+            failed = true;
+            end();
+        }
+
+        void failed() {
+            failed = true;
+        }
+
+        void end() {
+            op.latency.record(System.nanoTime() - startNanos);
+            op.calls.increment();
+            if (failed) op.errors.increment();
+        }
+
+        /**
+         * Wrap a statement created on the pooled connection
+         * @param type Statement interface the connection method returns
+         */
+        Object wrapStatement(Object statement, Class<?> type, String sql) {
+            return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                    new StatementHandler(statement, this, sql));
+        }
+    }
+
+    /**
+     * Start a call for the DAO method asking for a connection
+     * @param operation "Class.method", or null to find it on the call stack
+     * @param startNanos When the acquire started (System.nanoTime())
+     * @return the call, or null when metrics are disabled
+     */
+    static Call begin(String operation, long startNanos) {
+        if (!ENABLED) return null;
+        return new Call(operation(operation != null ? operation : callerName()), startNanos);
+    }
+
+    /**
+     * @return Metrics for the named operation ("Class.method"), or null if it has not run yet
+     */
+    public static Operation get(String name) {
+        return OPERATIONS.get(name);
+    }
+
+    /**
+     * @return All operations seen so far, sorted by name
+     */
+    public static List<Operation> getOperations() {
+        List<Operation> ops = new ArrayList<>(OPERATIONS.values());
+        ops.sort(Comparator.comparing(Operation::getName));
+        return ops;
+    }
+
+    /**
+     * Report every statement executed on a pooled connection to the listener.
+     * Bound parameters are only tracked while a listener is set.
+     * @param listener the listener, or null to stop
+     */
+    public static void setStatementListener(StatementListener listener) {
+        statementListener = listener;
+    }
+
+    public static void reset() {
+        for (Operation op : OPERATIONS.values()) {
+            op.reset();
+        }
+    }
+
+    /**
+     * Human-readable table of all operations, one line each
+     */
+    public static String snapshot() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-44s %9s %7s %10s %10s %8s %8s %8s %8s %9s %9s%n",
+                "operation", "calls", "errors", "rows", "updated", "p50ms", "p99ms", "p999ms", "maxms",
+                "acqP99ms", "qryP99ms"));
+        for (Operation op : getOperations()) {
+            sb.append(String.format("%-44s %9d %7d %10d %10d %8.3f %8.3f %8.3f %8.3f %9.3f %9.3f%n",
+                    op.getName(), op.getCalls(), op.getErrors(), op.getRowsReturned(), op.getRowsUpdated(),
+                    op.getLatencyP50Millis(), op.getLatencyP99Millis(), op.getLatencyP999Millis(),
+                    op.getLatencyMaxMillis(), op.getAcquireP99Millis(), op.getQueryP99Millis()));
+        }
+        return sb.toString();
+    }
+
+    // ==========================================================
+    //                       INTERNALS
+    // ==========================================================
+
+    private static Operation operation(String name) {
+        Operation op = OPERATIONS.get(name);
+        if (op != null) return op;
+
+        Operation created = new Operation(name);
+        op = OPERATIONS.putIfAbsent(name, created);
+        if (op != null) return op;
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(created,
+                    new ObjectName(JMX_DOMAIN + ":type=Operation,name=" + ObjectName.quote(name)));
+        } catch (JMException e) {
+            System.err.println("Error registering DAO metrics MBean for " + name + ": " + e.getMessage());
+        }
+        return created;
+    }
+
+    /**
+     * Entry point into the DAO layer: the outermost of the consecutive
+     * dao-package frames above the pool, e.g. "VoterDAO.getVotersPage"
+     * rather than the CountEstimates helper it calls.
+     */
+    private static String callerName() {
+        return WALKER.walk(frames -> {
+            String found = null;
+            for (StackWalker.StackFrame frame : (Iterable<StackWalker.StackFrame>) frames::iterator) {
+                String cls = frame.getClassName();
+                if (cls.startsWith(DAO_PACKAGE)) {
+                    found = cls.substring(DAO_PACKAGE.length()) + "." + frame.getMethodName();
+                } else if (found != null) {
+                    break;
+                }
+            }
+            return found != null ? found : UNATTRIBUTED;
+        });
+    }
+
+    private static Throwable unwrap(InvocationTargetException e, Call call) {
+        Throwable cause = e.getCause();
+        if (cause instanceof SQLException) call.failed();
+        return cause;
+    }
+
+    /** Times execute* calls and counts update counts; wraps result sets */
+    private static final class StatementHandler implements InvocationHandler {
+        private final Object target;
+        private final Call call;
+        private final String sql;
+        private Map<Integer, Object> parameters;
+
+        StatementHandler(Object target, Call call, String sql) {
+            this.target = target;
+            this.call = call;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            boolean execute = name.startsWith("execute");
+            StatementListener listener = statementListener;
+            if (listener != null) notify(listener, name, execute, args);
+            long start = execute ? System.nanoTime() : 0;
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw unwrap(e, call);
+            } finally {
+                if (execute) call.op.query.record(System.nanoTime() - start);
+            }
+
+            if (result instanceof ResultSet) {
+                return Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                        new ResultSetHandler((ResultSet) result, call));
+            }
+            if (execute) countUpdates(result);
+            return result;
+        }
+
+        private void notify(StatementListener listener, String name, boolean execute, Object[] args) {
+            if (parameters == null) parameters = new TreeMap<>();
+            if (execute) {
+                String text = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+                if (text != null) listener.executed(call.operationName(), text, new TreeMap<>(parameters));
+            } else if (name.equals("setNull") && args.length >= 1) {
+                parameters.put((Integer) args[0], null);
+            } else if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                parameters.put((Integer) args[0], args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameters.clear();
+            }
+        }
+
+        private void countUpdates(Object result) {
+            if (result instanceof Integer) {
+                call.op.rowsUpdated.add(Math.max(0, (Integer) result));
+            } else if (result instanceof Long) {
+                call.op.rowsUpdated.add(Math.max(0, (Long) result));
+            } else if (result instanceof int[]) {
+                for (int n : (int[]) result) {
+                    if (n > 0) call.op.rowsUpdated.add(n);
+                }
+            } else if (result instanceof long[]) {
+                for (long n : (long[]) result) {
+                    if (n > 0) call.op.rowsUpdated.add(n);
+                }
+            }
+        }
+    }
+
+    /** Counts rows as next() moves over them */
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final Call call;
+
+        ResultSetHandler(ResultSet target, Call call) {
+            this.target = target;
+            this.call = call;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            try {
+                Object result = method.invoke(target, args);
+                if (Boolean.TRUE.equals(result) && "next".equals(method.getName())) {
+                    call.op.rowsReturned.increment();
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw unwrap(e, call);
+            }
+        }
+    }
+}
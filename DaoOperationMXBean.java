@@ -0,0 +1,44 @@
+package utils;
+
+/**
+ * JMX view of one DAO operation, registered as
+ * {@code voting.dao:type=Operation,name=<Class.method>}.
+ * Times are in milliseconds.
+ */
+public interface DaoOperationMXBean {
+
+    long getCalls();
+
+    /** Calls that hit a SQLException, including ones the DAO caught */
+    long getErrors();
+
+    long getRowsReturned();
+
+    long getRowsUpdated();
+
+    double getLatencyMeanMillis();
+
+    double getLatencyP50Millis();
+
+    double getLatencyP99Millis();
+
+    double getLatencyP999Millis();
+
+    double getLatencyMaxMillis();
+
+    double getAcquireP50Millis();
+
+    double getAcquireP99Millis();
+
+    double getAcquireMaxMillis();
+
+    long getQueries();
+
+    double getQueryP50Millis();
+
+    double getQueryP99Millis();
+
+    double getQueryP999Millis();
+
+    void reset();
+}
@@ -0,0 +1,368 @@
+package utils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Central access point for database connections.
+ *
+ * Connections come from a bounded {@link ConnectionPool}. DAOs keep calling
+ * getConnection() inside try-with-resources; closing the connection hands it
+ * back to the pool.
+ *
+ * Read-only reporting queries can be sent to read replicas with
+ * getReadConnection(). Without replicas it returns a primary connection.
+ * Replicas lag behind the primary, so reads about a voter who was just
+ * written to (see recordWrite) go to the primary for a short window, and
+ * onPrimary() forces every read in a block to the primary.
+ *
+ * Pools admit checkouts by priority (see {@link AdmissionController}) so
+ * admin reports cannot starve voting; each pool's classes are published over
+ * JMX as voting.dao:type=Admission,pool=primary (or replica-N).
+ *
+ * The default pool brings the schema up to date with {@link SchemaMigrator}
+ * when it is created; pools set up with configure() are left to the caller.
+ *
+ * Settings can be overridden with system properties:
+ * db.url, db.user, db.password, db.pool.minSize, db.pool.maxSize,
+ * db.pool.acquireTimeoutMs, db.pool.leakDetectionMs,
+ * db.replica.urls (comma-separated, same user and password),
+ * db.replica.readYourWritesMs, db.admission (true/false), db.migrate (true/false)
+ */
+public class DatabaseConnection {
+
+    private static final String URL = System.getProperty("db.url", "jdbc:mysql://localhost:3306/voting_system?rewriteBatchedStatements=true");
+    private static final String USER = System.getProperty("db.user", "root");
+    private static final String PASSWORD = System.getProperty("db.password", "");
+
+    private static final String REPLICA_URLS = System.getProperty("db.replica.urls", "");
+    private static final boolean ADMISSION = Boolean.parseBoolean(System.getProperty("db.admission", "true"));
+    private static final boolean MIGRATE = Boolean.parseBoolean(System.getProperty("db.migrate", "true"));
+    private static final String PRIMARY = "primary";
+
+    private static volatile ConnectionPool pool;
+    private static volatile ConnectionPool[] replicas;
+    private static final AtomicInteger nextReplica = new AtomicInteger();
+    /** Replicas that failed to connect, skipped until the recorded System.nanoTime() */
+    private static final Map<ConnectionPool, Long> replicaDownUntil = new ConcurrentHashMap<>();
+    private static final long REPLICA_RETRY_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private static volatile long readYourWritesNanos =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("db.replica.readYourWritesMs", 5_000L));
+    private static final Map<String, Long> recentWrites = new ConcurrentHashMap<>();
+    private static final AtomicLong lastPrunedAt = new AtomicLong(System.nanoTime());
+    private static final ThreadLocal<Boolean> forcePrimary = new ThreadLocal<>();
+
+    private DatabaseConnection() {
+    }
+
+    /**
+     * Get a pooled database connection
+     * @return Connection; close it to return it to the pool
+     * @throws SQLException if no connection is available within the acquire timeout
+     */
+    public static Connection getConnection() throws SQLException {
+        return getPool().getConnection();
+    }
+
+    /**
+     * Get a pooled database connection, recorded in {@link DaoMetrics} under
+     * the given operation. DAOs pass their "Class.method" name so the metrics
+     * do not have to walk the stack to find it.
+     * @param operation Operation name, e.g. "VoteDAO.castVote"
+     * @return Connection; close it to return it to the pool
+     * @throws SQLException if no connection is available within the acquire timeout
+     */
+    public static Connection getConnection(String operation) throws SQLException {
+        return getPool().getConnection(operation);
+    }
+
+    /**
+     * Get a connection for a read-only query that can tolerate replication lag.
+     * Comes from a replica (round robin) when replicas are configured, unless
+     * the thread is inside onPrimary(). A replica that fails to connect is
+     * skipped for a few seconds and the read goes to the primary. Work the
+     * replica sheds or times out is not moved to the primary.
+     * @param operation Operation name, e.g. "VoteDAO.getAllVotes"
+     * @return Connection; close it to return it to its pool
+     * @throws SQLException if no connection is available within the acquire timeout,
+     *         or AdmissionRejectedException if the replica's admission control shed the read
+     */
+    public static Connection getReadConnection(String operation) throws SQLException {
+        ConnectionPool[] r = getReplicas();
+        ConnectionPool replica = r.length == 0 || forcePrimary.get() != null ? null : pickReplica(r);
+        if (replica == null) {
+            return getPool().getConnection(operation);
+        }
+        try {
+            return replica.getConnection(operation);
+        } catch (SQLException e) {
+            if (!isConnectionFailure(e)) throw e;
+            replicaDownUntil.put(replica, System.nanoTime() + REPLICA_RETRY_NANOS);
+            System.err.println("Replica unavailable, reading from primary: " + e.getMessage());
+            return getPool().getConnection(operation);
+        }
+    }
+
+    /**
+     * Like getReadConnection(operation), but reads from the primary if the
+     * subject was written recently, so a voter sees their own vote
+     * @param operation Operation name
+     * @param subject Key passed to recordWrite, e.g. the voter ID
+     */
+    public static Connection getReadConnection(String operation, String subject) throws SQLException {
+        if (subject != null && wasRecentlyWritten(subject)) {
+            return getPool().getConnection(operation);
+        }
+        return getReadConnection(operation);
+    }
+
+    /**
+     * Note that the subject (e.g. a voter ID) was just written on the primary.
+     * Does nothing when no replicas are configured. Expired entries are
+     * pruned by one caller at most once per read-your-writes window.
+     */
+    public static void recordWrite(String subject) {
+        if (subject == null || getReplicas().length == 0) return;
+        long now = System.nanoTime();
+        recentWrites.put(subject, now);
+        long last = lastPrunedAt.get();
+        if (now - last > readYourWritesNanos && lastPrunedAt.compareAndSet(last, now)) {
+            recentWrites.values().removeIf(t -> now - t > readYourWritesNanos);
+        }
+    }
+
+    /**
+     * Run the work with every read on this thread going to the primary
+     * @param work Reads that must see the latest writes
+     * @return the work's result
+     */
+    public static <T> T onPrimary(Supplier<T> work) {
+        Boolean previous = forcePrimary.get();
+        forcePrimary.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) forcePrimary.remove();
+        }
+    }
+
+    /**
+     * Reads that report failures to the caller
+     */
+    public interface SqlQuery<T> {
+        T run() throws SQLException;
+    }
+
+    /**
+     * Like onPrimary, for reads that throw SQLException
+     * @param work Reads that must see the latest writes
+     * @return the work's result
+     * @throws SQLException if the work fails
+     */
+    public static <T> T queryOnPrimary(SqlQuery<T> work) throws SQLException {
+        Boolean previous = forcePrimary.get();
+        forcePrimary.set(Boolean.TRUE);
+        try {
+            return work.run();
+        } finally {
+            if (previous == null) forcePrimary.remove();
+        }
+    }
+
+    /**
+     * Get current pool statistics (active, idle, waiting, wait time, timeouts)
+     * @return Pool statistics
+     */
+    public static ConnectionPool.Stats getPoolStats() {
+        return getPool().getStats();
+    }
+
+    /**
+     * Admission control of the primary pool
+     * @return the controller, or null when the pool runs without admission control
+     */
+    public static AdmissionController getAdmission() {
+        return getPool().getAdmission();
+    }
+
+    /**
+     * Get statistics for each replica pool, in configuration order
+     * @return Replica pool statistics; empty without replicas
+     */
+    public static List<ConnectionPool.Stats> getReplicaPoolStats() {
+        List<ConnectionPool.Stats> stats = new ArrayList<>();
+        for (ConnectionPool replica : getReplicas()) stats.add(replica.getStats());
+        return stats;
+    }
+
+    /**
+     * Replace the pool with one built from the given settings.
+     * The previous pool, if any, is closed.
+     * @param config Pool settings
+     */
+    public static synchronized void configure(ConnectionPool.Config config) {
+        ConnectionPool previous = pool;
+        pool = published(new ConnectionPool(config), PRIMARY);
+        if (previous != null) retire(previous, PRIMARY);
+    }
+
+    /**
+     * Replace the replica pools. The previous ones, if any, are closed.
+     * @param configs One config per replica; none to read from the primary only
+     */
+    public static synchronized void configureReplicas(ConnectionPool.Config... configs) {
+        ConnectionPool[] previous = replicas;
+        ConnectionPool[] next = new ConnectionPool[configs.length];
+        for (int i = 0; i < configs.length; i++) next[i] = new ConnectionPool(configs[i]);
+        if (previous != null) {
+            for (int i = 0; i < previous.length; i++) retire(previous[i], replicaName(i));
+        }
+        for (int i = 0; i < next.length; i++) published(next[i], replicaName(i));
+        replicas = next;
+        recentWrites.clear();
+        replicaDownUntil.clear();
+    }
+
+    /**
+     * How long after recordWrite reads about that subject stay on the primary;
+     * should cover the replicas' worst lag
+     */
+    public static void setReadYourWritesWindow(long millis) {
+        readYourWritesNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * Close the pools; the next getConnection() call creates a fresh one
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            retire(pool, PRIMARY);
+            pool = null;
+        }
+        if (replicas != null) {
+            for (int i = 0; i < replicas.length; i++) retire(replicas[i], replicaName(i));
+            replicas = null;
+        }
+        recentWrites.clear();
+    }
+
+    private static ConnectionPool published(ConnectionPool p, String name) {
+        if (p.getAdmission() != null) p.getAdmission().registerMBeans(name);
+        return p;
+    }
+
+    private static void retire(ConnectionPool p, String name) {
+        if (p.getAdmission() != null) p.getAdmission().unregisterMBeans(name);
+        p.close();
+    }
+
+    private static void migrate(ConnectionPool p) {
+        try (Connection conn = p.getConnection("SchemaMigrator.migrate")) {
+            SchemaMigrator.migrate(conn);
+        } catch (SQLException e) {
+            System.err.println("Error migrating the database schema: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static String replicaName(int index) {
+        return "replica-" + (index + 1);
+    }
+
+    /** Next replica in round robin that is not marked down, or null if all are */
+    private static ConnectionPool pickReplica(ConnectionPool[] r) {
+        int start = nextReplica.getAndIncrement();
+        for (int i = 0; i < r.length; i++) {
+            ConnectionPool replica = r[Math.floorMod(start + i, r.length)];
+            Long downUntil = replicaDownUntil.get(replica);
+            if (downUntil == null) return replica;
+            if (System.nanoTime() - downUntil >= 0) {
+                replicaDownUntil.remove(replica, downUntil);
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The replica could not be reached, as opposed to being busy or shedding
+     * work: SQL state class 08, or H2's 90067 (connection broken)
+     */
+    private static boolean isConnectionFailure(SQLException e) {
+        if (e instanceof AdmissionController.AdmissionRejectedException) return false;
+        return e instanceof SQLNonTransientConnectionException
+                || (e.getSQLState() != null && e.getSQLState().startsWith("08"))
+                || e.getErrorCode() == 90067;
+    }
+
+    private static boolean wasRecentlyWritten(String subject) {
+        Long at = recentWrites.get(subject);
+        if (at == null) return false;
+        if (System.nanoTime() - at <= readYourWritesNanos) return true;
+        recentWrites.remove(subject, at);
+        return false;
+    }
+
+    private static ConnectionPool[] getReplicas() {
+        ConnectionPool[] r = replicas;
+        if (r == null) {
+            synchronized (DatabaseConnection.class) {
+                r = replicas;
+                if (r == null) {
+                    List<ConnectionPool> list = new ArrayList<>();
+                    for (String url : REPLICA_URLS.split(",")) {
+                        if (!url.trim().isEmpty()) {
+                            list.add(published(new ConnectionPool(replicaConfig(url.trim())), replicaName(list.size())));
+                        }
+                    }
+                    r = list.toArray(new ConnectionPool[0]);
+                    replicas = r;
+                }
+            }
+        }
+        return r;
+    }
+
+    private static ConnectionPool getPool() {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (DatabaseConnection.class) {
+                p = pool;
+                if (p == null) {
+                    p = published(new ConnectionPool(defaultConfig()), PRIMARY);
+                    if (MIGRATE) migrate(p);
+                    pool = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    private static ConnectionPool.Config defaultConfig() {
+        return new ConnectionPool.Config(URL, USER, PASSWORD)
+                .minSize(Integer.getInteger("db.pool.minSize", 2))
+                .maxSize(Integer.getInteger("db.pool.maxSize", 20))
+                .acquireTimeoutMillis(Long.getLong("db.pool.acquireTimeoutMs", 5_000L))
+                .leakDetectionThresholdMillis(Long.getLong("db.pool.leakDetectionMs", 0L))
+                .admissionControl(ADMISSION);
+    }
+
+    private static ConnectionPool.Config replicaConfig(String url) {
+        return new ConnectionPool.Config(url, USER, PASSWORD)
+                .minSize(Integer.getInteger("db.pool.minSize", 2))
+                .maxSize(Integer.getInteger("db.pool.maxSize", 20))
+                .acquireTimeoutMillis(Long.getLong("db.pool.acquireTimeoutMs", 5_000L))
+                .leakDetectionThresholdMillis(Long.getLong("db.pool.leakDetectionMs", 0L))
+                .admissionControl(ADMISSION);
+    }
+}
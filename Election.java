@@ -0,0 +1,42 @@
+package models;
+
+import java.sql.Timestamp;
+
+/**
+ * Election model
+ */
+public class Election {
+
+    private int electionId;
+    private String electionName;
+    private Timestamp startTime;
+    private Timestamp endTime;
+    private boolean active;
+
+    public int getElectionId() { return electionId; }
+    public void setElectionId(int electionId) { this.electionId = electionId; }
+
+    public String getElectionName() { return electionName; }
+    public void setElectionName(String electionName) { this.electionName = electionName; }
+
+    public Timestamp getStartTime() { return startTime; }
+    public void setStartTime(Timestamp startTime) { this.startTime = startTime; }
+
+    public Timestamp getEndTime() { return endTime; }
+    public void setEndTime(Timestamp endTime) { this.endTime = endTime; }
+
+    public boolean isActive() { return active; }
+    public void setActive(boolean active) { this.active = active; }
+
+    /**
+     * An election accepts votes inside its schedule, from start time to end
+     * time. One without a start time only opens while it is flagged active,
+     * and a missing end time leaves it open until it is closed.
+     * VoteDAO.castVoteAtomic applies the same rule in SQL.
+     */
+    public boolean isOpenAt(long millis) {
+        return (active || startTime != null)
+                && (startTime == null || millis >= startTime.getTime())
+                && (endTime == null || millis < endTime.getTime());
+    }
+}
@@ -0,0 +1,160 @@
+package dao;
+
+import models.Election;
+import utils.DatabaseConnection;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Access Object for Election operations
+ */
+public class ElectionDAO {
+
+    /**
+     * Get all elections flagged active, earliest start first
+     * @return List of active elections, or null if the query failed
+     */
+    public List<Election> getActiveElections() {
+        List<Election> list = new ArrayList<>();
+        String sql = "SELECT * FROM elections WHERE is_active = TRUE ORDER BY start_time ASC";
+
+        try (Connection conn = DatabaseConnection.getConnection("ElectionDAO.getActiveElections");
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) list.add(extractElection(rs));
+
+        } catch (SQLException e) {
+            System.err.println("Error getting active elections: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+
+        return list;
+    }
+
+    /**
+     * Get every election that is open or can still open on schedule: those
+     * flagged active, and those with a start time that have not ended yet
+     * @param now current time; elections that ended before it are skipped
+     * @return List of elections, earliest start first, or null if the query failed
+     */
+    public List<Election> getScheduledElections(Timestamp now) {
+        List<Election> list = new ArrayList<>();
+        String sql = "SELECT * FROM elections WHERE is_active = TRUE "
+                + "OR (start_time IS NOT NULL AND (end_time IS NULL OR end_time > ?)) ORDER BY start_time ASC";
+
+        try (Connection conn = DatabaseConnection.getConnection("ElectionDAO.getScheduledElections");
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setTimestamp(1, now);
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) list.add(extractElection(rs));
+
+        } catch (SQLException e) {
+            System.err.println("Error getting scheduled elections: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+
+        return list;
+    }
+
+    /**
+     * Open an election now: flag it active, move a later start time to now
+     * and drop an end time that has already passed
+     * @param electionId Election ID
+     * @param now current time
+     * @return true if the election was updated, false otherwise
+     */
+    public boolean openElection(int electionId, Timestamp now) {
+        String sql = "UPDATE elections SET is_active = TRUE, "
+                + "start_time = CASE WHEN start_time > ? THEN ? ELSE start_time END, "
+                + "end_time = CASE WHEN end_time <= ? THEN NULL ELSE end_time END WHERE election_id = ?";
+
+        try (Connection conn = DatabaseConnection.getConnection("ElectionDAO.openElection");
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setTimestamp(1, now);
+            pstmt.setTimestamp(2, now);
+            pstmt.setTimestamp(3, now);
+            pstmt.setInt(4, electionId);
+            return pstmt.executeUpdate() > 0;
+
+        } catch (SQLException e) {
+            System.err.println("Error opening election: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return false;
+    }
+
+    /**
+     * Close an election now: clear the active flag and end its schedule,
+     * so a start time does not open it again
+     * @param electionId Election ID
+     * @param now current time
+     * @return true if the election was updated, false otherwise
+     */
+    public boolean closeElection(int electionId, Timestamp now) {
+        String sql = "UPDATE elections SET is_active = FALSE, "
+                + "end_time = CASE WHEN end_time IS NULL OR end_time > ? THEN ? ELSE end_time END WHERE election_id = ?";
+
+        try (Connection conn = DatabaseConnection.getConnection("ElectionDAO.closeElection");
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setTimestamp(1, now);
+            pstmt.setTimestamp(2, now);
+            pstmt.setInt(3, electionId);
+            return pstmt.executeUpdate() > 0;
+
+        } catch (SQLException e) {
+            System.err.println("Error closing election: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return false;
+    }
+
+    /**
+     * Open or close an election
+     * @param electionId Election ID
+     * @param active true to open, false to close
+     * @return true if the election was updated, false otherwise
+     */
+    public boolean setActive(int electionId, boolean active) {
+        String sql = "UPDATE elections SET is_active = ? WHERE election_id = ?";
+
+        try (Connection conn = DatabaseConnection.getConnection("ElectionDAO.setActive");
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setBoolean(1, active);
+            pstmt.setInt(2, electionId);
+            return pstmt.executeUpdate() > 0;
+
+        } catch (SQLException e) {
+            System.err.println("Error updating election status: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return false;
+    }
+
+    /**
+     * Extract Election object from ResultSet
+     * @param rs ResultSet
+     * @return Election object
+     * @throws SQLException if extraction fails
+     */
+    private Election extractElection(ResultSet rs) throws SQLException {
+        Election election = new Election();
+        election.setElectionId(rs.getInt("election_id"));
+        election.setElectionName(rs.getString("election_name"));
+        election.setStartTime(rs.getTimestamp("start_time"));
+        election.setEndTime(rs.getTimestamp("end_time"));
+        election.setActive(rs.getBoolean("is_active"));
+        return election;
+    }
+}
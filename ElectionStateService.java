@@ -0,0 +1,129 @@
+package services;
+
+import dao.ElectionDAO;
+import models.Election;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current election state in memory so the voting path never
+ * queries the elections table.
+ *
+ * The active and scheduled elections are reloaded on a short interval and
+ * immediately after an admin opens or closes an election. Whether an
+ * election is open is decided per call from its start/end time, so
+ * scheduled openings and closings take effect on time without waiting for
+ * a refresh, including for elections not flagged active.
+ */
+public class ElectionStateService implements AutoCloseable {
+
+    private static final long DEFAULT_REFRESH_MILLIS = Long.getLong("election.refreshMs", 5_000L);
+
+    private static volatile ElectionStateService instance;
+
+    private final ElectionDAO electionDAO;
+    private final AtomicReference<List<Election>> activeElections = new AtomicReference<>(Collections.emptyList());
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Shared instance, created and loaded on first use
+     */
+    public static ElectionStateService getInstance() {
+        ElectionStateService s = instance;
+        if (s == null) {
+            synchronized (ElectionStateService.class) {
+                s = instance;
+                if (s == null) {
+                    s = new ElectionStateService(new ElectionDAO(), DEFAULT_REFRESH_MILLIS);
+                    instance = s;
+                }
+            }
+        }
+        return s;
+    }
+
+    /**
+     * @param electionDAO DAO used to load and update elections
+     * @param refreshMillis how often the state is reloaded from the database
+     */
+    public ElectionStateService(ElectionDAO electionDAO, long refreshMillis) {
+        this.electionDAO = electionDAO;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "election-state-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        refresh();
+        scheduler.scheduleWithFixedDelay(this::refresh, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reload active and scheduled elections; on failure the previous state is kept
+     */
+    public void refresh() {
+        List<Election> loaded = electionDAO.getScheduledElections(new Timestamp(System.currentTimeMillis()));
+        if (loaded != null) {
+            activeElections.set(Collections.unmodifiableList(loaded));
+        }
+    }
+
+    /**
+     * The election accepting votes right now
+     * @return open election, or null if none is open
+     */
+    public Election getOpenElection() {
+        long now = System.currentTimeMillis();
+        for (Election e : activeElections.get()) {
+            if (e.isOpenAt(now)) return e;
+        }
+        return null;
+    }
+
+    /**
+     * @return ID of the election accepting votes right now, or -1 if none is open
+     */
+    public int getOpenElectionId() {
+        Election e = getOpenElection();
+        return e == null ? -1 : e.getElectionId();
+    }
+
+    /**
+     * @return true if an election is accepting votes right now
+     */
+    public boolean isVotingOpen() {
+        return getOpenElection() != null;
+    }
+
+    /**
+     * Admin action: open an election and publish the change immediately
+     * @param electionId Election ID
+     * @return true if the election was updated
+     */
+    public boolean openElection(int electionId) {
+        boolean updated = electionDAO.openElection(electionId, new Timestamp(System.currentTimeMillis()));
+        refresh();
+        return updated;
+    }
+
+    /**
+     * Admin action: close an election and publish the change immediately
+     * @param electionId Election ID
+     * @return true if the election was updated
+     */
+    public boolean closeElection(int electionId) {
+        boolean updated = electionDAO.closeElection(electionId, new Timestamp(System.currentTimeMillis()));
+        refresh();
+        return updated;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
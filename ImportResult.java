@@ -0,0 +1,59 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a bulk import, with one entry per input row
+ */
+public class ImportResult {
+
+    /**
+     * Result for a single input row
+     */
+    public static class Row {
+        private final long rowNumber;
+        private final String key;
+        private final boolean accepted;
+        private final String reason;
+
+        public Row(long rowNumber, String key, boolean accepted, String reason) {
+            this.rowNumber = rowNumber;
+            this.key = key;
+            this.accepted = accepted;
+            this.reason = reason;
+        }
+
+        public long getRowNumber() { return rowNumber; }
+        public String getKey() { return key; }
+        public boolean isAccepted() { return accepted; }
+        public String getReason() { return reason; }
+    }
+
+    private final List<Row> rows = new ArrayList<>();
+    private int accepted;
+    private int rejected;
+
+    public void accept(long rowNumber, String key) {
+        rows.add(new Row(rowNumber, key, true, null));
+        accepted++;
+    }
+
+    public void reject(long rowNumber, String key, String reason) {
+        rows.add(new Row(rowNumber, key, false, reason));
+        rejected++;
+    }
+
+    public List<Row> getRows() {
+        return Collections.unmodifiableList(rows);
+    }
+
+    public int getAccepted() {
+        return accepted;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+}
@@ -0,0 +1,126 @@
+package utils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Helpers for streaming large result sets row by row.
+ *
+ * The returned Stream owns the connection, statement and result set. They
+ * are released when the stream is closed or fully consumed, so callers
+ * should open streams in try-with-resources.
+ *
+ * On MySQL the statement is forward-only, read-only with fetch size
+ * Integer.MIN_VALUE, which Connector/J streams row by row without
+ * useCursorFetch (that flag would make every statement in the pool a
+ * server-side prepare). Other drivers get FETCH_SIZE.
+ */
+public final class JdbcStreams {
+
+    /** Rows fetched per round trip on drivers that honor a fetch size (db.streamFetchSize) */
+    public static final int FETCH_SIZE = Integer.getInteger("db.streamFetchSize", 500);
+
+    @FunctionalInterface
+    public interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    @FunctionalInterface
+    public interface ParameterSetter {
+        void set(PreparedStatement ps) throws SQLException;
+    }
+
+    private JdbcStreams() {
+    }
+
+    /**
+     * Run a query and stream its rows.
+     * The connection is closed if the query cannot be started.
+     * @param conn Connection the stream takes ownership of
+     * @param sql Query
+     * @param params Binds query parameters
+     * @param mapper Maps the current row
+     * @return Lazily populated stream of mapped rows
+     * @throws SQLException if the query fails to execute
+     */
+    public static <T> Stream<T> stream(Connection conn, String sql, ParameterSetter params, RowMapper<T> mapper)
+            throws SQLException {
+        PreparedStatement ps = null;
+        try {
+            ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize(conn));
+            params.set(ps);
+            ResultSet rs = ps.executeQuery();
+
+            RowSpliterator<T> rows = new RowSpliterator<>(conn, ps, rs, mapper);
+            return StreamSupport.stream(rows, false).onClose(rows::close);
+
+        } catch (SQLException | RuntimeException e) {
+            closeQuietly(ps);
+            closeQuietly(conn);
+            throw e;
+        }
+    }
+
+    /** Connector/J streams only with Integer.MIN_VALUE unless useCursorFetch is set */
+    private static int fetchSize(Connection conn) throws SQLException {
+        return "MySQL".equalsIgnoreCase(conn.getMetaData().getDatabaseProductName()) ? Integer.MIN_VALUE : FETCH_SIZE;
+    }
+
+    private static void closeQuietly(AutoCloseable resource) {
+        if (resource == null) return;
+        try {
+            resource.close();
+        } catch (Exception ignored) {
+            // nothing more to do
+        }
+    }
+
+    private static final class RowSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+        private final Connection conn;
+        private final PreparedStatement ps;
+        private final ResultSet rs;
+        private final RowMapper<T> mapper;
+        private boolean closed;
+
+        RowSpliterator(Connection conn, PreparedStatement ps, ResultSet rs, RowMapper<T> mapper) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.conn = conn;
+            this.ps = ps;
+            this.rs = rs;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (closed) return false;
+            try {
+                if (!rs.next()) {
+                    close();
+                    return false;
+                }
+                action.accept(mapper.map(rs));
+                return true;
+
+            } catch (SQLException e) {
+                close();
+                throw new IllegalStateException("Error reading streamed row: " + e.getMessage(), e);
+            }
+        }
+
+        void close() {
+            if (closed) return;
+            closed = true;
+            closeQuietly(rs);
+            closeQuietly(ps);
+            closeQuietly(conn);
+        }
+    }
+}
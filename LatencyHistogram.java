@@ -0,0 +1,105 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear buckets.
+ *
+ * Every power of two is split into 16 sub-buckets, so a reported percentile
+ * is within about 6% of the true value. Recording is one LongAdder increment
+ * and never allocates.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    /** Values up to 2^40 ns (~18 minutes); larger values land in the last bucket */
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Record one value
+     * @param nanos Duration in nanoseconds; negative values count as 0
+     */
+    public void record(long nanos) {
+        long v = Math.max(0, nanos);
+        buckets[indexOf(v)].increment();
+        count.increment();
+        sum.add(v);
+        if (v > max.get()) max.accumulateAndGet(v, Math::max);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : sum.sum() / (double) n / 1_000_000d;
+    }
+
+    public double getMaxMillis() {
+        return max.get() / 1_000_000d;
+    }
+
+    /**
+     * Value at the given quantile
+     * @param quantile Between 0 and 1, e.g. 0.99
+     * @return Upper bound of the bucket holding the quantile, in milliseconds
+     */
+    public double getPercentileMillis(double quantile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets[i].sum();
+            total += snapshot[i];
+        }
+        if (total == 0) return 0;
+
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= Math.max(1, rank)) {
+                return Math.min(upperBound(i), max.get()) / 1_000_000d;
+            }
+        }
+        return getMaxMillis();
+    }
+
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    private static int indexOf(long v) {
+        if (v < SUB_COUNT) return (int) v;
+        int exponent = 63 - Long.numberOfLeadingZeros(v);
+        if (exponent > MAX_EXPONENT) return BUCKETS - 1;
+        int sub = (int) (v >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB_COUNT) return index;
+        int exponent = index / SUB_COUNT + SUB_BITS - 1;
+        int sub = index % SUB_COUNT;
+        return ((long) (SUB_COUNT + sub + 1) << (exponent - SUB_BITS)) - 1;
+    }
+}
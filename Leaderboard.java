@@ -0,0 +1,313 @@
+package services;
+
+import dao.CandidateDAO;
+import dao.VoteDAO;
+import dao.VoteEvents;
+import models.CandidateBallotEntry;
+import utils.DatabaseConnection;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Candidates of one election ordered by votes, kept current in memory.
+ *
+ * Built from the votes table, then moved by the deltas VoteDAO publishes
+ * through {@link VoteEvents}: each accepted vote repositions one candidate in
+ * a sorted set, O(log n). Top-K, a candidate's rank and the margin to the
+ * candidate ranked below are answered from memory.
+ *
+ * Ties are broken by candidate ID, lowest first, so every reader sees the
+ * same order and a candidate's rank is its position in that order.
+ *
+ * The board is rebuilt when VoteDAO reports a reset (votes deleted, results
+ * rebuilt) and every resync interval. A vote that commits while the votes
+ * table is being read can be counted twice until the next rebuild, as with
+ * {@link ResultsFeed}; the resync bounds how long that lasts. A rebuild that
+ * fails leaves the board as it was and is retried.
+ */
+public class Leaderboard implements AutoCloseable {
+
+    /**
+     * One candidate's place on the board. Immutable.
+     */
+    public static final class Standing {
+        private final int candidateId;
+        private final long votes;
+        private final int rank;
+        private final long votesBehind;
+        private final long margin;
+
+        Standing(int candidateId, long votes, int rank, long votesBehind, long margin) {
+            this.candidateId = candidateId;
+            this.votes = votes;
+            this.rank = rank;
+            this.votesBehind = votesBehind;
+            this.margin = margin;
+        }
+
+        public int getCandidateId() { return candidateId; }
+        public long getVotes() { return votes; }
+        /** 1 for the leader */
+        public int getRank() { return rank; }
+        /** Votes short of the candidate ranked directly above; 0 for the leader */
+        public long getVotesBehind() { return votesBehind; }
+        /** Lead over the candidate ranked directly below; -1 for the last candidate */
+        public long getMargin() { return margin; }
+
+        @Override
+        public String toString() {
+            return "#" + rank + " candidate " + candidateId + " " + votes + " votes";
+        }
+    }
+
+    /** Mutable count; only changed while out of the ordered set */
+    private static final class Entry {
+        final int candidateId;
+        long votes;
+
+        Entry(int candidateId) {
+            this.candidateId = candidateId;
+        }
+    }
+
+    private static final Comparator<Entry> ORDER = (a, b) -> {
+        int c = Long.compare(b.votes, a.votes);
+        return c != 0 ? c : Integer.compare(a.candidateId, b.candidateId);
+    };
+
+    private final VoteDAO voteDAO;
+    private final CandidateDAO candidateDAO;
+    private final int electionId;
+    private final VoteEvents.Listener listener;
+    private final long resyncMillis;
+    private final ScheduledExecutorService rebuilder;
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    private final Object rebuildLock = new Object();
+
+    // Guarded by this
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> ordered = new TreeSet<>(ORDER);
+    private long total;
+    private Map<Integer, Long> sinceRebuild;
+
+    /**
+     * @param candidateDAO source of the ballot, so candidates without votes are ranked too
+     * @param electionId election to follow
+     * @param resyncMillis how often the board is rebuilt from the database
+     */
+    public Leaderboard(VoteDAO voteDAO, CandidateDAO candidateDAO, int electionId, long resyncMillis) {
+        if (resyncMillis < 1) {
+            throw new IllegalArgumentException("Invalid resync interval: " + resyncMillis);
+        }
+        this.resyncMillis = resyncMillis;
+        this.voteDAO = voteDAO;
+        this.candidateDAO = candidateDAO;
+        this.electionId = electionId;
+        this.listener = new VoteEvents.Listener() {
+            @Override
+            public void votesAccepted(int election, int candidateId, int votes) {
+                if (election == electionId) add(candidateId, votes);
+            }
+
+            @Override
+            public void resultsReset(int election) {
+                // Listeners must not query; rebuild off the committing thread
+                if (election == electionId) requestRebuild();
+            }
+        };
+        this.rebuilder = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "leaderboard-" + electionId);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Start following votes, build the board from the database and schedule
+     * the resync; a failed first build is retried in the background
+     */
+    public void start() {
+        VoteEvents.addListener(listener);
+        if (!rebuild()) requestRebuild();
+        rebuilder.scheduleWithFixedDelay(this::rebuildQuietly, resyncMillis, resyncMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Replace the board with the counts in the votes table, read from the
+     * primary. Votes accepted while it runs are kept. If the read fails the
+     * board is left as it was.
+     * @return true if the board was rebuilt
+     */
+    public boolean rebuild() {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                sinceRebuild = new HashMap<>();
+            }
+            List<CandidateBallotEntry> ballot = candidateDAO.getBallot();
+            Map<Integer, Integer> counts;
+            try {
+                counts = DatabaseConnection.queryOnPrimary(() -> voteDAO.queryVoteCountsByCandidate(electionId));
+            } catch (SQLException e) {
+                System.err.println("Leaderboard rebuild failed, keeping the current board: " + e.getMessage());
+                synchronized (this) {
+                    sinceRebuild = null;
+                }
+                return false;
+            }
+
+            synchronized (this) {
+                entries.clear();
+                ordered.clear();
+                total = 0;
+                for (CandidateBallotEntry c : ballot) entry(c.getCandidateId());
+                for (Map.Entry<Integer, Integer> e : counts.entrySet()) entry(e.getKey()).votes = e.getValue();
+                for (Map.Entry<Integer, Long> e : sinceRebuild.entrySet()) entry(e.getKey()).votes += e.getValue();
+                for (Entry e : entries.values()) {
+                    ordered.add(e);
+                    total += e.votes;
+                }
+                sinceRebuild = null;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * @return the first k candidates, leader first
+     */
+    public synchronized List<Standing> getTop(int k) {
+        List<Standing> top = new ArrayList<>(Math.min(Math.max(k, 0), ordered.size()));
+        Entry above = null;
+        int rank = 0;
+        for (Entry e : ordered) {
+            if (++rank > k) break;
+            Entry below = ordered.higher(e);
+            top.add(standing(e, rank, above, below));
+            above = e;
+        }
+        return Collections.unmodifiableList(top);
+    }
+
+    /**
+     * @return the candidate's place, or null if the candidate is not on the board
+     */
+    public synchronized Standing getStanding(int candidateId) {
+        Entry e = entries.get(candidateId);
+        if (e == null) return null;
+        return standing(e, rankOf(e), ordered.lower(e), ordered.higher(e));
+    }
+
+    /**
+     * Position in the board order; O(rank)
+     * @return 1 for the leader, 0 if the candidate is not on the board
+     */
+    public synchronized int getRank(int candidateId) {
+        Entry e = entries.get(candidateId);
+        return e != null ? rankOf(e) : 0;
+    }
+
+    /**
+     * @return lead over the candidate ranked directly below, -1 for the last
+     *         candidate or one not on the board
+     */
+    public synchronized long getMargin(int candidateId) {
+        Entry e = entries.get(candidateId);
+        if (e == null) return -1;
+        Entry below = ordered.higher(e);
+        return below != null ? e.votes - below.votes : -1;
+    }
+
+    /**
+     * Votes for a candidate in this election. For a candidate that stood only
+     * in this election it equals VoteDAO.getVoteCountForCandidate.
+     */
+    public synchronized long getVotes(int candidateId) {
+        Entry e = entries.get(candidateId);
+        return e != null ? e.votes : 0;
+    }
+
+    /** Turnout: all votes in the election */
+    public synchronized long getTotal() {
+        return total;
+    }
+
+    /** Number of candidates on the board */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getElectionId() {
+        return electionId;
+    }
+
+    @Override
+    public void close() {
+        VoteEvents.removeListener(listener);
+        rebuilder.shutdownNow();
+    }
+
+    private synchronized void add(int candidateId, long votes) {
+        if (sinceRebuild != null) sinceRebuild.merge(candidateId, votes, Long::sum);
+        Entry e = entries.get(candidateId);
+        if (e == null) {
+            e = entry(candidateId);
+        } else {
+            ordered.remove(e);
+        }
+        e.votes += votes;
+        ordered.add(e);
+        total += votes;
+    }
+
+    /** Entry for a candidate, created outside the ordered set if missing */
+    private Entry entry(int candidateId) {
+        return entries.computeIfAbsent(candidateId, Entry::new);
+    }
+
+    private int rankOf(Entry e) {
+        return ordered.headSet(e).size() + 1;
+    }
+
+    private static Standing standing(Entry e, int rank, Entry above, Entry below) {
+        return new Standing(e.candidateId, e.votes, rank,
+                above != null ? above.votes - e.votes : 0,
+                below != null ? e.votes - below.votes : -1);
+    }
+
+    /** Rebuild off the committing thread; retried after a second until it succeeds */
+    private void requestRebuild() {
+        if (!rebuildQueued.compareAndSet(false, true)) return;
+        try {
+            rebuilder.execute(() -> {
+                rebuildQueued.set(false);
+                if (!rebuildQuietly()) {
+                    rebuilder.schedule(this::requestRebuild, 1, TimeUnit.SECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // closed
+            rebuildQueued.set(false);
+        }
+    }
+
+    private boolean rebuildQuietly() {
+        try {
+            return rebuild();
+        } catch (RuntimeException e) {
+            System.err.println("Leaderboard rebuild failed: " + e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Plain-text metrics page: GET /metrics returns the DAO operation table
+ * from {@link DaoMetrics#snapshot()} followed by the connection pool stats
+ * and, when admission control is on, the per-class admission counters.
+ * GET /metrics?reset=true clears the DAO metrics after rendering them.
+ */
+public final class MetricsEndpoint implements AutoCloseable {
+
+    private final HttpServer server;
+
+    private MetricsEndpoint(HttpServer server) {
+        this.server = server;
+    }
+
+    /**
+     * Start serving on the given port
+     * @param port TCP port; 0 picks a free one
+     * @return the running endpoint; close() stops it
+     * @throws IOException if the port cannot be bound
+     */
+    public static MetricsEndpoint start(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/metrics", MetricsEndpoint::handle);
+        server.start();
+        return new MetricsEndpoint(server);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            String body = DaoMetrics.snapshot() + System.lineSeparator()
+                    + "pool " + DatabaseConnection.getPoolStats() + System.lineSeparator();
+            AdmissionController admission = DatabaseConnection.getAdmission();
+            if (admission != null) {
+                body += "admission" + System.lineSeparator() + admission;
+            }
+            String query = exchange.getRequestURI().getQuery();
+            if ("reset=true".equals(query)) {
+                DaoMetrics.reset();
+            }
+
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
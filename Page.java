@@ -0,0 +1,42 @@
+package models;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing
+ */
+public class Page<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+    private final long estimatedTotal;
+
+    public Page(List<T> items, String nextCursor, long estimatedTotal) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+        this.estimatedTotal = estimatedTotal;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Cursor to pass back for the following page, or null on the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    /**
+     * Approximate number of rows matching the filter (may lag by a few seconds)
+     */
+    public long getEstimatedTotal() {
+        return estimatedTotal;
+    }
+}
@@ -0,0 +1,291 @@
+package services;
+
+import dao.VoteDAO;
+import dao.VoteEvents;
+import utils.DatabaseConnection;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Live results for one election, pushed to subscribers instead of polled.
+ *
+ * Starts from the election_results aggregate, then adds the deltas VoteDAO
+ * publishes through {@link VoteEvents}. Deltas are summed in memory and
+ * published once per interval as an immutable {@link Snapshot}, and only if
+ * something changed, so any number of dashboards cost one aggregation and
+ * no queries.
+ *
+ * The baseline is reloaded when VoteDAO reports a reset (votes deleted,
+ * results rebuilt) and every resync interval. That also corrects the few
+ * votes that can be counted twice when they commit while the baseline is
+ * being read, which is why the resync cannot be turned off. A reload that
+ * fails keeps the previous counts and the pending deltas, and is retried
+ * on the next tick.
+ */
+public class ResultsFeed implements AutoCloseable {
+
+    /**
+     * Results at one point in time
+     */
+    public static final class Snapshot {
+        private final int electionId;
+        private final long sequence;
+        private final Map<Integer, Long> counts;
+        private final long total;
+        private final long createdAt;
+        private final String json;
+
+        Snapshot(int electionId, long sequence, Map<Integer, Long> counts, long total) {
+            this.electionId = electionId;
+            this.sequence = sequence;
+            this.counts = Collections.unmodifiableMap(counts);
+            this.total = total;
+            this.createdAt = System.currentTimeMillis();
+            this.json = buildJson();
+        }
+
+        public int getElectionId() { return electionId; }
+        /** Increases by one per published snapshot */
+        public long getSequence() { return sequence; }
+        /** Candidate ID -> votes, in candidate order */
+        public Map<Integer, Long> getCounts() { return counts; }
+        /** Turnout: all votes in the election */
+        public long getTotal() { return total; }
+        public long getCreatedAt() { return createdAt; }
+
+        /**
+         * {"electionId":1,"sequence":7,"total":42,"createdAt":...,"counts":{"3":20,"5":22}}
+         */
+        public String toJson() {
+            return json;
+        }
+
+        private String buildJson() {
+            StringBuilder sb = new StringBuilder(64 + counts.size() * 16);
+            sb.append("{\"electionId\":").append(electionId)
+                    .append(",\"sequence\":").append(sequence)
+                    .append(",\"total\":").append(total)
+                    .append(",\"createdAt\":").append(createdAt)
+                    .append(",\"counts\":{");
+            boolean first = true;
+            for (Map.Entry<Integer, Long> e : counts.entrySet()) {
+                if (!first) sb.append(',');
+                sb.append('"').append(e.getKey()).append("\":").append(e.getValue());
+                first = false;
+            }
+            return sb.append("}}").toString();
+        }
+    }
+
+    /**
+     * Handle for a subscriber; close it to stop receiving snapshots
+     */
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final VoteDAO voteDAO;
+    private final int electionId;
+    private final long intervalMillis;
+    private final long resyncNanos;
+    private final ConcurrentHashMap<Integer, LongAdder> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean resetRequested = new AtomicBoolean();
+    private final List<Consumer<Snapshot>> subscribers = new CopyOnWriteArrayList<>();
+    private final VoteEvents.Listener listener;
+    private final ScheduledExecutorService scheduler;
+
+    // Only touched by the scheduler thread
+    private final Map<Integer, Long> counts = new TreeMap<>();
+    private long sequence;
+    private long lastResync;
+    private boolean loaded;
+    private volatile Snapshot latest;
+
+    /**
+     * @param electionId election to follow
+     * @param intervalMillis how often deltas are coalesced and published
+     * @param resyncMillis how often the baseline is reloaded from the database
+     */
+    public ResultsFeed(VoteDAO voteDAO, int electionId, long intervalMillis, long resyncMillis) {
+        if (intervalMillis < 1) {
+            throw new IllegalArgumentException("Invalid interval: " + intervalMillis);
+        }
+        if (resyncMillis < 1) {
+            throw new IllegalArgumentException("Invalid resync interval: " + resyncMillis);
+        }
+        this.voteDAO = voteDAO;
+        this.electionId = electionId;
+        this.intervalMillis = intervalMillis;
+        this.resyncNanos = TimeUnit.MILLISECONDS.toNanos(resyncMillis);
+        this.listener = new VoteEvents.Listener() {
+            @Override
+            public void votesAccepted(int election, int candidateId, int votes) {
+                if (election == electionId) {
+                    pending.computeIfAbsent(candidateId, id -> new LongAdder()).add(votes);
+                }
+            }
+
+            @Override
+            public void resultsReset(int election) {
+                if (election == electionId) resetRequested.set(true);
+            }
+        };
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "results-feed-" + electionId);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Load the baseline, publish the first snapshot and start following votes
+     */
+    public void start() {
+        VoteEvents.addListener(listener);
+        scheduler.execute(() -> {
+            if (reload()) publish();
+        });
+        scheduler.scheduleWithFixedDelay(this::tick, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Receive every published snapshot, starting with the latest one.
+     * Subscribers run on the feed thread and must return quickly.
+     */
+    public Subscription subscribe(Consumer<Snapshot> subscriber) {
+        // Registered on the feed thread so the subscriber never sees a snapshot twice or out of order
+        onFeedThread(() -> {
+            subscribers.add(subscriber);
+            Snapshot current = latest;
+            if (current != null) deliver(subscriber, current);
+        });
+        return () -> onFeedThread(() -> subscribers.remove(subscriber));
+    }
+
+    /**
+     * Reload the baseline from the database on the next tick, e.g. once
+     * voting has stopped, to settle any vote counted twice
+     */
+    public void requestResync() {
+        resetRequested.set(true);
+    }
+
+    /**
+     * @return most recent snapshot, or null before the first one is published
+     */
+    public Snapshot getLatest() {
+        return latest;
+    }
+
+    public int getElectionId() {
+        return electionId;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void close() {
+        VoteEvents.removeListener(listener);
+        scheduler.shutdownNow();
+        subscribers.clear();
+    }
+
+    private void tick() {
+        try {
+            boolean changed;
+            if (!loaded || resetRequested.getAndSet(false) || System.nanoTime() - lastResync > resyncNanos) {
+                boolean wasLoaded = loaded;
+                Map<Integer, Long> before = new TreeMap<>(counts);
+                // Nothing is published until a baseline has loaded once
+                if (!reload()) resetRequested.set(true);
+                changed = loaded && (!wasLoaded || !before.equals(counts));
+            } else {
+                changed = drain();
+            }
+            if (changed) publish();
+        } catch (RuntimeException e) {
+            System.err.println("Results feed error: " + e.getMessage());
+        }
+    }
+
+    /** Fold pending deltas into the counts; true if any were pending */
+    private boolean drain() {
+        boolean changed = false;
+        for (Map.Entry<Integer, LongAdder> e : pending.entrySet()) {
+            long delta = e.getValue().sumThenReset();
+            if (delta != 0) {
+                counts.merge(e.getKey(), delta, Long::sum);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Replace the counts with the election_results aggregate, read from the
+     * primary. On failure the counts are kept, with the pending deltas folded in.
+     * @return true if the baseline was reloaded
+     */
+    private boolean reload() {
+        lastResync = System.nanoTime();
+        Map<Integer, Long> held = new TreeMap<>();
+        for (Map.Entry<Integer, LongAdder> e : pending.entrySet()) {
+            long delta = e.getValue().sumThenReset();
+            if (delta != 0) held.put(e.getKey(), delta);
+        }
+
+        Map<Integer, Integer> stored;
+        try {
+            stored = DatabaseConnection.queryOnPrimary(() -> voteDAO.queryResultsByElection(electionId));
+        } catch (SQLException e) {
+            System.err.println("Results feed reload failed, keeping the previous counts: " + e.getMessage());
+            held.forEach((id, delta) -> counts.merge(id, delta, Long::sum));
+            return false;
+        }
+
+        counts.clear();
+        for (Map.Entry<Integer, Integer> e : stored.entrySet()) counts.put(e.getKey(), (long) e.getValue());
+        loaded = true;
+        return true;
+    }
+
+    private void publish() {
+        long total = 0;
+        for (long c : counts.values()) total += c;
+        Snapshot snapshot = new Snapshot(electionId, ++sequence, new TreeMap<>(counts), total);
+        latest = snapshot;
+        for (Consumer<Snapshot> subscriber : subscribers) deliver(subscriber, snapshot);
+    }
+
+    private void onFeedThread(Runnable task) {
+        try {
+            scheduler.execute(task);
+        } catch (RejectedExecutionException e) {
+            // feed closed; nothing left to deliver
+        }
+    }
+
+    private static void deliver(Consumer<Snapshot> subscriber, Snapshot snapshot) {
+        try {
+            subscriber.accept(snapshot);
+        } catch (RuntimeException e) {
+            System.err.println("Results subscriber failed: " + e.getMessage());
+        }
+    }
+}
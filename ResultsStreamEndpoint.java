@@ -0,0 +1,139 @@
+package services;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import utils.VirtualThreads;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HTTP view of a {@link ResultsFeed}:
+ * GET /results returns the latest snapshot as JSON, and
+ * GET /results/stream is a Server-Sent Events stream with one "results"
+ * event per published snapshot. A slow client skips to the newest snapshot
+ * instead of queueing old ones.
+ */
+public final class ResultsStreamEndpoint implements AutoCloseable {
+
+    private static final long KEEPALIVE_SECONDS = 15;
+
+    private final ResultsFeed feed;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicInteger streams = new AtomicInteger();
+    private volatile boolean running = true;
+
+    private ResultsStreamEndpoint(ResultsFeed feed, HttpServer server, ExecutorService executor) {
+        this.feed = feed;
+        this.server = server;
+        this.executor = executor;
+    }
+
+    /**
+     * Start serving the feed on the given port
+     * @param port TCP port; 0 picks a free one
+     * @return the running endpoint; close() stops it
+     * @throws IOException if the port cannot be bound
+     */
+    public static ResultsStreamEndpoint start(ResultsFeed feed, int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        // Streams hold their thread for as long as the client stays connected
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("results-stream");
+        ResultsStreamEndpoint endpoint = new ResultsStreamEndpoint(feed, server, executor);
+        server.createContext("/results", endpoint::handle);
+        server.setExecutor(executor);
+        server.start();
+        return endpoint;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return number of connected SSE clients
+     */
+    public int getStreamCount() {
+        return streams.get();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/results")) {
+                sendLatest(exchange);
+            } else if (path.equals("/results/stream")) {
+                stream(exchange);
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void sendLatest(HttpExchange exchange) throws IOException {
+        ResultsFeed.Snapshot snapshot = feed.getLatest();
+        if (snapshot == null) {
+            exchange.sendResponseHeaders(503, -1);
+            return;
+        }
+        byte[] bytes = snapshot.toJson().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private void stream(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+
+        BlockingQueue<ResultsFeed.Snapshot> newest = new ArrayBlockingQueue<>(1);
+        ResultsFeed.Subscription subscription = feed.subscribe(snapshot -> {
+            newest.clear();
+            newest.offer(snapshot);
+        });
+        streams.incrementAndGet();
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            while (running) {
+                ResultsFeed.Snapshot snapshot = newest.poll(KEEPALIVE_SECONDS, TimeUnit.SECONDS);
+                String event = snapshot == null
+                        ? ": keepalive\n\n"
+                        : "id: " + snapshot.getSequence() + "\nevent: results\ndata: " + snapshot.toJson() + "\n\n";
+                out.write(event.getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // client disconnected
+        } finally {
+            subscription.close();
+            streams.decrementAndGet();
+        }
+    }
+}
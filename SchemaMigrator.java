@@ -0,0 +1,278 @@
+package utils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Versioned schema migrations for the voting database.
+ *
+ * Each migration has a version, a description and a list of statements, some
+ * of which only apply to one dialect (MySQL in production, H2 in MySQL mode
+ * for the embedded database). Applied versions are recorded in
+ * schema_version with a checksum of their statements, and migrate() applies
+ * whatever is missing, in order.
+ *
+ * Tables are created with IF NOT EXISTS and indexes by name, and an index or
+ * constraint that already exists is skipped, so the migrations can be run
+ * against a database whose tables were created by hand.
+ *
+ * Released migrations must not be edited; add a new version instead.
+ */
+public final class SchemaMigrator {
+
+    /**
+     * SQL dialect a statement is written for
+     */
+    public enum Dialect {
+        MYSQL, H2;
+
+        static Dialect of(Connection conn) throws SQLException {
+            return "H2".equalsIgnoreCase(conn.getMetaData().getDatabaseProductName()) ? H2 : MYSQL;
+        }
+    }
+
+    /**
+     * One schema version
+     */
+    public static final class Migration {
+        private final int version;
+        private final String description;
+        private final List<Dialect> dialects = new ArrayList<>();
+        private final List<String> statements = new ArrayList<>();
+
+        Migration(int version, String description) {
+            this.version = version;
+            this.description = description;
+        }
+
+        /** Statements for every dialect */
+        Migration sql(String... sql) {
+            for (String s : sql) {
+                dialects.add(null);
+                statements.add(s);
+            }
+            return this;
+        }
+
+        /** Statements for one dialect only */
+        Migration sql(Dialect dialect, String... sql) {
+            for (String s : sql) {
+                dialects.add(dialect);
+                statements.add(s);
+            }
+            return this;
+        }
+
+        public int getVersion() { return version; }
+        public String getDescription() { return description; }
+
+        /**
+         * @return the statements this migration runs on the given dialect, in order
+         */
+        public List<String> getStatements(Dialect dialect) {
+            List<String> list = new ArrayList<>();
+            for (int i = 0; i < statements.size(); i++) {
+                if (dialects.get(i) == null || dialects.get(i) == dialect) list.add(statements.get(i));
+            }
+            return list;
+        }
+
+        int checksum(Dialect dialect) {
+            return String.join(";\n", getStatements(dialect)).hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "V" + version + " " + description;
+        }
+    }
+
+    private static final List<Migration> MIGRATIONS = Collections.unmodifiableList(Arrays.asList(
+            new Migration(1, "Create tables")
+                    .sql("CREATE TABLE IF NOT EXISTS admins ("
+                            + "admin_id INT AUTO_INCREMENT PRIMARY KEY, username VARCHAR(50) NOT NULL, "
+                            + "password VARCHAR(255) NOT NULL, full_name VARCHAR(100), email VARCHAR(100), "
+                            + "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)",
+                            "CREATE TABLE IF NOT EXISTS voters ("
+                            + "voter_id VARCHAR(32) PRIMARY KEY, roll_number VARCHAR(30) NOT NULL, "
+                            + "full_name VARCHAR(100), department VARCHAR(50), year_of_study VARCHAR(10), "
+                            + "email VARCHAR(100), password VARCHAR(255), "
+                            + "is_approved BOOLEAN NOT NULL DEFAULT FALSE, has_voted BOOLEAN NOT NULL DEFAULT FALSE)",
+                            "CREATE TABLE IF NOT EXISTS candidates ("
+                            + "candidate_id INT AUTO_INCREMENT PRIMARY KEY, rollno VARCHAR(30), name VARCHAR(100), "
+                            + "dept VARCHAR(50), symbol_filename VARCHAR(255), photo_path VARCHAR(255), "
+                            + "description_path VARCHAR(255), is_approved BOOLEAN NOT NULL DEFAULT FALSE, "
+                            + "vote_count INT NOT NULL DEFAULT 0)",
+                            "CREATE TABLE IF NOT EXISTS elections ("
+                            + "election_id INT AUTO_INCREMENT PRIMARY KEY, election_name VARCHAR(100), "
+                            + "start_time TIMESTAMP NULL, end_time TIMESTAMP NULL, is_active BOOLEAN NOT NULL DEFAULT FALSE)")
+                    .sql(Dialect.MYSQL, "CREATE TABLE IF NOT EXISTS votes ("
+                            + "vote_id INT AUTO_INCREMENT PRIMARY KEY, voter_id VARCHAR(32) NOT NULL, "
+                            + "candidate_id INT NOT NULL, election_id INT NOT NULL, "
+                            + "voted_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)")
+                    // A plain sequence: H2's identity columns handed out duplicate vote_ids under concurrent inserts
+                    .sql(Dialect.H2, "CREATE SEQUENCE IF NOT EXISTS votes_seq",
+                            "CREATE TABLE IF NOT EXISTS votes ("
+                            + "vote_id INT DEFAULT NEXT VALUE FOR votes_seq PRIMARY KEY, voter_id VARCHAR(32) NOT NULL, "
+                            + "candidate_id INT NOT NULL, election_id INT NOT NULL, "
+                            + "voted_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)")
+                    .sql("CREATE TABLE IF NOT EXISTS election_results ("
+                            + "election_id INT NOT NULL, candidate_id INT NOT NULL, votes INT NOT NULL DEFAULT 0, "
+                            + "PRIMARY KEY (election_id, candidate_id))"),
+
+            new Migration(2, "Unique usernames, roll numbers and one vote per voter per election")
+                    .sql("CREATE UNIQUE INDEX uq_admins_username ON admins (username)",
+                            "CREATE UNIQUE INDEX uq_voters_roll_number ON voters (roll_number)",
+                            "CREATE UNIQUE INDEX uq_votes_voter_election ON votes (voter_id, election_id)"),
+
+            new Migration(3, "Indexes for the vote, login, ballot and listing queries")
+                    .sql("CREATE INDEX idx_votes_candidate ON votes (candidate_id)",
+                            "CREATE INDEX idx_votes_election_time ON votes (election_id, voted_at)",
+                            "CREATE INDEX idx_results_candidate ON election_results (candidate_id)",
+                            "CREATE INDEX idx_voters_approved ON voters (is_approved, voter_id)",
+                            "CREATE INDEX idx_voters_department ON voters (department, year_of_study, voter_id)",
+                            "CREATE INDEX idx_candidates_approved ON candidates (is_approved, candidate_id)",
+                            "CREATE INDEX idx_elections_active ON elections (is_active, start_time)"),
+
+            // Elections now open on their start time; ones already closed by clearing is_active get an end time
+            new Migration(4, "End the schedule of elections closed before scheduled opening")
+                    .sql("UPDATE elections SET end_time = CURRENT_TIMESTAMP WHERE is_active = FALSE "
+                            + "AND end_time IS NULL AND start_time IS NOT NULL AND start_time <= CURRENT_TIMESTAMP"),
+
+            new Migration(5, "Index for the candidate page order")
+                    .sql("CREATE INDEX idx_candidates_name ON candidates (name, candidate_id)")
+    ));
+
+    private static final String LOCK_NAME = "voting_system.schema";
+
+    private SchemaMigrator() {
+    }
+
+    /**
+     * @return all migrations, oldest first
+     */
+    public static List<Migration> getMigrations() {
+        return MIGRATIONS;
+    }
+
+    public static int getLatestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).getVersion();
+    }
+
+    /**
+     * Apply every migration the database does not have yet
+     * @param conn connection to the primary; left in auto-commit mode
+     * @return number of migrations applied
+     * @throws SQLException if a migration fails; the versions before it stay applied
+     */
+    public static synchronized int migrate(Connection conn) throws SQLException {
+        Dialect dialect = Dialect.of(conn);
+        conn.setAutoCommit(true);
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS schema_version ("
+                    + "version INT PRIMARY KEY, description VARCHAR(200) NOT NULL, checksum INT NOT NULL, "
+                    + "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        }
+
+        // Another instance may be starting against the same MySQL database
+        if (dialect == Dialect.MYSQL) lock(conn);
+        try {
+            Map<Integer, Integer> applied = getAppliedChecksums(conn);
+            int count = 0;
+            for (Migration m : MIGRATIONS) {
+                Integer checksum = applied.get(m.getVersion());
+                if (checksum != null) {
+                    if (checksum != m.checksum(dialect)) {
+                        System.err.println("Schema migration " + m + " differs from the version applied to the database");
+                    }
+                    continue;
+                }
+                apply(conn, dialect, m);
+                count++;
+            }
+            return count;
+        } finally {
+            if (dialect == Dialect.MYSQL) unlock(conn);
+        }
+    }
+
+    /**
+     * @return highest applied version, or 0 for a database without schema_version
+     */
+    public static int getCurrentVersion(Connection conn) {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            // no schema_version table yet
+            return 0;
+        }
+    }
+
+    private static void apply(Connection conn, Dialect dialect, Migration m) throws SQLException {
+        long start = System.nanoTime();
+        try (Statement st = conn.createStatement()) {
+            for (String sql : m.getStatements(dialect)) {
+                try {
+                    st.execute(sql);
+                } catch (SQLException e) {
+                    if (!alreadyExists(e)) {
+                        throw new SQLException("Schema migration " + m + " failed at: " + sql, e.getSQLState(), e);
+                    }
+                }
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO schema_version (version, description, checksum) VALUES (?, ?, ?)")) {
+            ps.setInt(1, m.getVersion());
+            ps.setString(2, m.getDescription());
+            ps.setInt(3, m.checksum(dialect));
+            ps.executeUpdate();
+        }
+        System.out.println("Applied schema migration " + m + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /** An index or constraint of that name is already there (MySQL 1061, H2 42111 and 90045) */
+    private static boolean alreadyExists(SQLException e) {
+        int code = e.getErrorCode();
+        return code == 1061 || code == 42111 || code == 90045;
+    }
+
+    private static Map<Integer, Integer> getAppliedChecksums(Connection conn) throws SQLException {
+        Map<Integer, Integer> applied = new HashMap<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT version, checksum FROM schema_version")) {
+            while (rs.next()) applied.put(rs.getInt(1), rs.getInt(2));
+        }
+        return applied;
+    }
+
+    private static void lock(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT GET_LOCK(?, 60)")) {
+            ps.setString(1, LOCK_NAME);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for another instance to finish migrating the schema");
+                }
+            }
+        }
+    }
+
+    private static void unlock(Connection conn) {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.executeQuery().close();
+        } catch (SQLException e) {
+            System.err.println("Error releasing schema lock: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Small helpers for building set-based SQL statements
+ */
+public final class SqlUtils {
+
+    private SqlUtils() {
+    }
+
+    /**
+     * Placeholder list for an IN clause, e.g. 3 -> "?, ?, ?"
+     * @param count number of placeholders (at least 1)
+     * @return comma separated placeholders
+     */
+    public static String placeholders(int count) {
+        if (count < 1) throw new IllegalArgumentException("IN list needs at least one value");
+        StringBuilder sb = new StringBuilder(count * 3);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Split values into chunks of at most the given size, keeping order
+     * @param values values to split
+     * @param size maximum chunk size
+     * @return list of chunks
+     */
+    public static <T> List<List<T>> chunks(Collection<T> values, int size) {
+        List<List<T>> chunks = new ArrayList<>();
+        List<T> current = new ArrayList<>(Math.min(size, values.size()));
+        for (T v : values) {
+            current.add(v);
+            if (current.size() == size) {
+                chunks.add(current);
+                current = new ArrayList<>(size);
+            }
+        }
+        if (!current.isEmpty()) chunks.add(current);
+        return chunks;
+    }
+}
@@ -0,0 +1,57 @@
+package utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors backed by virtual threads when the JVM has them (Java 21+).
+ *
+ * Looked up reflectively so the code still compiles and runs on older JDKs,
+ * where it falls back to a cached pool of daemon platform threads.
+ */
+public final class VirtualThreads {
+
+    private static final Method NEW_VIRTUAL_EXECUTOR = lookup();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true if executors from this class run tasks on virtual threads
+     */
+    public static boolean isSupported() {
+        return NEW_VIRTUAL_EXECUTOR != null;
+    }
+
+    /**
+     * One new thread per task: virtual if supported, otherwise a cached pool
+     * of daemon platform threads named namePrefix-N
+     * @param namePrefix Name prefix for the platform-thread fallback
+     * @return executor; shut it down when done
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        if (NEW_VIRTUAL_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                System.err.println("Virtual threads unavailable, using platform threads: " + e.getMessage());
+            }
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, namePrefix + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private static Method lookup() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
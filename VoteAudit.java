@@ -0,0 +1,366 @@
+package services;
+
+import dao.ElectionDAO;
+import dao.VoteDAO;
+import models.AuditReport;
+import models.Election;
+import utils.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Audit of the three places votes are counted: the votes table,
+ * candidates.vote_count (plus the election_results aggregate) and
+ * voters.has_voted.
+ *
+ * The votes table is split into vote_id ranges that are recounted in
+ * parallel on a fork-join pool; each range is one indexed aggregate query,
+ * so only per-candidate counts leave the database. The voter checks run as
+ * set-based queries alongside the recount.
+ *
+ * Repair mode sets vote_count, election_results and has_voted from the
+ * votes table. It only runs while no election is active, since votes cast
+ * during the audit would be overwritten. Duplicate votes are reported but
+ * never deleted.
+ */
+public class VoteAudit {
+
+    /** vote_ids per recount range */
+    private static final int DEFAULT_RANGE_SIZE = 250_000;
+
+    /** Voter IDs listed per voter discrepancy */
+    private static final int SAMPLE_LIMIT = 100;
+
+    private final VoteDAO voteDAO;
+    private final ElectionDAO electionDAO;
+    private final int rangeSize;
+    private final int parallelism;
+    private volatile VoteCounterEngine counterEngine;
+
+    public VoteAudit() {
+        this(new VoteDAO(), new ElectionDAO(), DEFAULT_RANGE_SIZE,
+                Math.min(Runtime.getRuntime().availableProcessors(), DatabaseConnection.getPoolStats().getMaxSize()));
+    }
+
+    /**
+     * @param rangeSize vote_ids recounted per task
+     * @param parallelism concurrent recount queries; keep at or below the pool size
+     */
+    public VoteAudit(VoteDAO voteDAO, ElectionDAO electionDAO, int rangeSize, int parallelism) {
+        if (rangeSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("Invalid audit size: range=" + rangeSize + ", parallelism=" + parallelism);
+        }
+        this.voteDAO = voteDAO;
+        this.electionDAO = electionDAO;
+        this.rangeSize = rangeSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Flush this counter engine before auditing, so counts it still holds in
+     * memory are not reported as drift
+     */
+    public void setCounterEngine(VoteCounterEngine counterEngine) {
+        this.counterEngine = counterEngine;
+    }
+
+    /**
+     * Recount and compare
+     * @param repair true to fix the stored counts and flags afterwards
+     * @return report, or null if the audit could not run
+     */
+    public AuditReport run(boolean repair) {
+        VoteCounterEngine counters = counterEngine;
+        if (counters != null) counters.flush();
+
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            long[] bounds = voteIdBounds();
+            ForkJoinTask<Map<Long, Long>> recount = pool.submit(new RangeCount(bounds[0], bounds[1] + 1));
+            ForkJoinTask<VoterCheck> votedNotMarked = pool.submit(() -> collectVoterIds(
+                    "SELECT DISTINCT v.voter_id FROM votes v JOIN voters r ON r.voter_id = v.voter_id "
+                            + "WHERE r.has_voted = FALSE", "VoteAudit.votedNotMarked"));
+            ForkJoinTask<VoterCheck> markedNotVoted = pool.submit(() -> collectVoterIds(
+                    "SELECT r.voter_id FROM voters r WHERE r.has_voted = TRUE "
+                            + "AND NOT EXISTS (SELECT 1 FROM votes v WHERE v.voter_id = r.voter_id)", "VoteAudit.markedNotVoted"));
+            ForkJoinTask<Long> orphans = pool.submit(() -> countOrphanVotes());
+            ForkJoinTask<List<AuditReport.DuplicateVote>> duplicates = pool.submit(() -> findDuplicates());
+
+            AuditReport report = new AuditReport();
+            Map<Long, Long> counted = recount.get();
+            long total = 0;
+            for (long c : counted.values()) total += c;
+            report.setVotesCounted(total, ranges(bounds), (System.nanoTime() - start) / 1_000_000);
+
+            compareCandidates(report, counted);
+            compareResults(report, counted);
+            VoterCheck voted = votedNotMarked.get();
+            report.setVotedNotMarked(voted.count, voted.sample);
+            VoterCheck marked = markedNotVoted.get();
+            report.setMarkedNotVoted(marked.count, marked.sample);
+            report.setOrphanVotes(orphans.get());
+            for (AuditReport.DuplicateVote d : duplicates.get()) report.addDuplicate(d);
+
+            if (repair && !report.isConsistent()) {
+                repair(report);
+            }
+            return report;
+
+        } catch (SQLException e) {
+            System.err.println("Error auditing votes: " + e.getMessage());
+            e.printStackTrace();
+        } catch (ExecutionException e) {
+            System.err.println("Error auditing votes: " + e.getCause().getMessage());
+            e.getCause().printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdown();
+        }
+        return null;
+    }
+
+    // ==========================================================
+    //                        RECOUNT
+    // ==========================================================
+
+    /** Counts per (election, candidate) for vote_ids in [from, to), split until ranges are small */
+    private final class RangeCount extends RecursiveTask<Map<Long, Long>> {
+        private static final long serialVersionUID = 1L;
+
+        private final long from;
+        private final long to;
+
+        RangeCount(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Map<Long, Long> compute() {
+            if (to - from <= rangeSize) {
+                try {
+                    return countRange(from, to);
+                } catch (SQLException e) {
+                    throw new IllegalStateException("Recount of vote_ids " + from + ".." + (to - 1) + " failed", e);
+                }
+            }
+            long mid = from + (to - from) / 2;
+            RangeCount left = new RangeCount(from, mid);
+            left.fork();
+            Map<Long, Long> right = new RangeCount(mid, to).compute();
+            Map<Long, Long> merged = left.join();
+            right.forEach((key, count) -> merged.merge(key, count, Long::sum));
+            return merged;
+        }
+    }
+
+    private Map<Long, Long> countRange(long from, long to) throws SQLException {
+        String sql = "SELECT election_id, candidate_id, COUNT(*) FROM votes "
+                + "WHERE vote_id >= ? AND vote_id < ? GROUP BY election_id, candidate_id";
+        Map<Long, Long> counts = new HashMap<>();
+
+        try (Connection conn = DatabaseConnection.getConnection("VoteAudit.countRange");
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setLong(1, from);
+            ps.setLong(2, to);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) counts.put(key(rs.getInt(1), rs.getInt(2)), rs.getLong(3));
+            }
+        }
+        return counts;
+    }
+
+    private long[] voteIdBounds() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection("VoteAudit.voteIdBounds");
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT MIN(vote_id), MAX(vote_id) FROM votes")) {
+            rs.next();
+            long min = rs.getLong(1);
+            return rs.wasNull() ? new long[]{0, -1} : new long[]{min, rs.getLong(2)};
+        }
+    }
+
+    private int ranges(long[] bounds) {
+        long span = bounds[1] - bounds[0] + 1;
+        if (span <= 0) return 0;
+        // Halving stops once a range is at most rangeSize, so leaves = next power of two above span / rangeSize
+        int leaves = 1;
+        while ((span + leaves - 1) / leaves > rangeSize) leaves <<= 1;
+        return leaves;
+    }
+
+    private static long key(int electionId, int candidateId) {
+        return ((long) electionId << 32) | (candidateId & 0xFFFFFFFFL);
+    }
+
+    // ==========================================================
+    //                       COMPARISON
+    // ==========================================================
+
+    private void compareCandidates(AuditReport report, Map<Long, Long> counted) throws SQLException {
+        Map<Integer, Long> byCandidate = new TreeMap<>();
+        for (Map.Entry<Long, Long> e : counted.entrySet()) {
+            byCandidate.merge((int) (long) e.getKey(), e.getValue(), Long::sum);
+        }
+        Map<Integer, Long> stored = new TreeMap<>();
+        try (Connection conn = DatabaseConnection.getConnection("VoteAudit.compareCandidates");
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT candidate_id, vote_count FROM candidates")) {
+            while (rs.next()) stored.put(rs.getInt(1), rs.getLong(2));
+        }
+
+        Set<Integer> ids = new TreeSet<>(stored.keySet());
+        ids.addAll(byCandidate.keySet());
+        for (int id : ids) {
+            long s = stored.getOrDefault(id, 0L);
+            long c = byCandidate.getOrDefault(id, 0L);
+            if (s != c) report.addCandidateMismatch(new AuditReport.CountMismatch(0, id, s, c));
+        }
+    }
+
+    private void compareResults(AuditReport report, Map<Long, Long> counted) throws SQLException {
+        Map<Long, Long> stored = new TreeMap<>();
+        try (Connection conn = DatabaseConnection.getConnection("VoteAudit.compareResults");
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT election_id, candidate_id, votes FROM election_results")) {
+            while (rs.next()) stored.put(key(rs.getInt(1), rs.getInt(2)), rs.getLong(3));
+        }
+
+        Set<Long> keys = new TreeSet<>(stored.keySet());
+        keys.addAll(counted.keySet());
+        for (long k : keys) {
+            long s = stored.getOrDefault(k, 0L);
+            long c = counted.getOrDefault(k, 0L);
+            if (s != c) {
+                report.addResultMismatch(new AuditReport.CountMismatch((int) (k >>> 32), (int) k, s, c));
+            }
+        }
+    }
+
+    // ==========================================================
+    //                      VOTER CHECKS
+    // ==========================================================
+
+    /** Number of voters a check found, with the first few IDs */
+    private static final class VoterCheck {
+        long count;
+        final List<String> sample = new ArrayList<>();
+    }
+
+    private VoterCheck collectVoterIds(String sql, String operation) throws SQLException {
+        VoterCheck check = new VoterCheck();
+        try (Connection conn = DatabaseConnection.getConnection(operation);
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) {
+                if (check.count++ < SAMPLE_LIMIT) check.sample.add(rs.getString(1));
+            }
+        }
+        return check;
+    }
+
+    private long countOrphanVotes() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection("VoteAudit.countOrphanVotes");
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM votes v "
+                     + "WHERE NOT EXISTS (SELECT 1 FROM voters r WHERE r.voter_id = v.voter_id)")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private List<AuditReport.DuplicateVote> findDuplicates() throws SQLException {
+        List<AuditReport.DuplicateVote> list = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection("VoteAudit.findDuplicates");
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT voter_id, election_id, COUNT(*) FROM votes "
+                     + "GROUP BY voter_id, election_id HAVING COUNT(*) > 1")) {
+            while (rs.next()) list.add(new AuditReport.DuplicateVote(rs.getString(1), rs.getInt(2), rs.getInt(3)));
+        }
+        return list;
+    }
+
+    // ==========================================================
+    //                         REPAIR
+    // ==========================================================
+
+    private void repair(AuditReport report) throws SQLException {
+        List<Election> active = electionDAO.getActiveElections();
+        if (active == null) {
+            report.setRepaired(false, "could not check for active elections");
+            return;
+        }
+        if (!active.isEmpty()) {
+            report.setRepaired(false, "election " + active.get(0).getElectionId() + " is active");
+            return;
+        }
+
+        try (Connection conn = DatabaseConnection.getConnection("VoteAudit.repair")) {
+            conn.setAutoCommit(false);
+
+            try {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "UPDATE candidates SET vote_count = ? WHERE candidate_id = ?")) {
+                    for (AuditReport.CountMismatch m : report.getCandidateMismatches()) {
+                        ps.setLong(1, m.getCounted());
+                        ps.setInt(2, m.getCandidateId());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                try (Statement st = conn.createStatement()) {
+                    st.executeUpdate("UPDATE voters SET has_voted = TRUE WHERE has_voted = FALSE "
+                            + "AND voter_id IN (SELECT voter_id FROM votes)");
+                    st.executeUpdate("UPDATE voters r SET has_voted = FALSE WHERE has_voted = TRUE "
+                            + "AND NOT EXISTS (SELECT 1 FROM votes v WHERE v.voter_id = r.voter_id)");
+                }
+                conn.commit();
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+
+        Set<Integer> elections = new TreeSet<>();
+        for (AuditReport.CountMismatch m : report.getResultMismatches()) elections.add(m.getElectionId());
+        boolean rebuilt = true;
+        for (int electionId : elections) {
+            rebuilt &= voteDAO.rebuildElectionResults(electionId);
+        }
+        report.setRepaired(rebuilt, rebuilt ? null : "election_results rebuild failed");
+    }
+
+    /**
+     * Run an audit against the configured database and print the report
+     * @param args "--repair" to fix what it finds
+     */
+    public static void main(String[] args) {
+        boolean repair = args.length > 0 && "--repair".equals(args[0]);
+        AuditReport report = new VoteAudit().run(repair);
+        DatabaseConnection.shutdown();
+        if (report == null) {
+            System.exit(2);
+        }
+        System.out.println(report);
+        System.exit(report.isConsistent() || report.isRepaired() ? 0 : 1);
+    }
+}
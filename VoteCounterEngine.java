@@ -0,0 +1,174 @@
+package services;
+
+import dao.CandidateDAO;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory vote counters with write-behind to candidates.vote_count.
+ *
+ * Each accepted vote bumps a striped LongAdder instead of updating the
+ * candidate row, so voters of a popular candidate no longer queue on one
+ * row lock. Accumulated deltas are written in one batch every flush
+ * interval, or sooner once the threshold of unflushed votes is reached.
+ *
+ * The votes table remains the source of truth: start() recomputes
+ * vote_count from it, so deltas lost in a crash are recovered on restart.
+ */
+public class VoteCounterEngine implements AutoCloseable {
+
+    private static final class Counter {
+        final LongAdder total = new LongAdder();
+        long flushed;       // guarded by flushLock
+        volatile long baseline;
+    }
+
+    private final CandidateDAO candidateDAO;
+    private final long flushIntervalMillis;
+    private final long flushThreshold;
+    private final ConcurrentHashMap<Integer, Counter> counters = new ConcurrentHashMap<>();
+    private final LongAdder unflushed = new LongAdder();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param candidateDAO DAO used to flush and reconcile counts
+     * @param flushIntervalMillis how often deltas are written
+     * @param flushThreshold unflushed votes that trigger an early flush; 0 disables
+     */
+    public VoteCounterEngine(CandidateDAO candidateDAO, long flushIntervalMillis, long flushThreshold) {
+        this.candidateDAO = candidateDAO;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.flushThreshold = flushThreshold;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "vote-counter-flush");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Reconcile counts from the votes table and start periodic flushing
+     * @throws IllegalStateException if the counts cannot be reconciled
+     */
+    public void start() {
+        Map<Integer, Integer> counts = candidateDAO.reconcileVoteCounts();
+        if (counts == null) {
+            throw new IllegalStateException("Could not reconcile vote counts from the votes table");
+        }
+        counts.forEach((id, count) -> counter(id).baseline = count);
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Record one accepted vote for a candidate
+     * @param candidateId Candidate ID
+     */
+    public void increment(int candidateId) {
+        counter(candidateId).total.increment();
+        unflushed.increment();
+
+        if (flushThreshold > 0 && unflushed.sum() >= flushThreshold && flushQueued.compareAndSet(false, true)) {
+            scheduler.execute(() -> {
+                flushQueued.set(false);
+                flushQuietly();
+            });
+        }
+    }
+
+    /**
+     * Current count for a candidate, including votes not yet flushed
+     * @param candidateId Candidate ID
+     * @return Vote count
+     */
+    public long getCount(int candidateId) {
+        Counter c = counters.get(candidateId);
+        return c == null ? 0 : c.baseline + c.total.sum();
+    }
+
+    /**
+     * Current counts for every known candidate, including votes not yet flushed
+     * @return candidate ID -> vote count
+     */
+    public Map<Integer, Long> getCounts() {
+        Map<Integer, Long> counts = new HashMap<>();
+        counters.forEach((id, c) -> counts.put(id, c.baseline + c.total.sum()));
+        return counts;
+    }
+
+    /**
+     * @return votes recorded in memory but not yet written to candidates.vote_count
+     */
+    public long getUnflushed() {
+        return unflushed.sum();
+    }
+
+    /**
+     * Write accumulated deltas to candidates.vote_count.
+     * On failure the deltas are kept and retried on the next flush.
+     * @return number of votes written
+     */
+    public long flush() {
+        flushLock.lock();
+        try {
+            Map<Integer, Long> deltas = new HashMap<>();
+            Map<Integer, Long> totals = new HashMap<>();
+
+            counters.forEach((id, c) -> {
+                long total = c.total.sum();
+                if (total > c.flushed) {
+                    deltas.put(id, total - c.flushed);
+                    totals.put(id, total);
+                }
+            });
+            if (deltas.isEmpty() || !candidateDAO.addVoteCounts(deltas)) return 0;
+
+            long written = 0;
+            for (Map.Entry<Integer, Long> e : deltas.entrySet()) {
+                counters.get(e.getKey()).flushed = totals.get(e.getKey());
+                written += e.getValue();
+            }
+            unflushed.add(-written);
+            return written;
+
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Stop periodic flushing and write any remaining deltas
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(flushIntervalMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private Counter counter(int candidateId) {
+        return counters.computeIfAbsent(candidateId, id -> new Counter());
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            System.err.println("Error flushing vote counters: " + e.getMessage());
+        }
+    }
+}
@@ -1,45 +1,240 @@
 package dao;
 import models.Vote;
+import models.VoteOutcome;
+import models.VoteRow;
 import utils.DatabaseConnection;
+import utils.JdbcStreams;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Data Access Object for Vote operations
  */
 public class VoteDAO {
 
+    /** Columns of {@link VoteRow}, in the order extractVoteRow reads them */
+    private static final String VOTE_ROW_COLUMNS = "vote_id, voter_id, candidate_id, election_id, voted_at";
+
+    /** Longest a caller waits for its batch to commit */
+    private static final long BATCH_WAIT_SECONDS = 30;
+
+    private static volatile VoteIngestionPipeline ingestionPipeline;
+
+    /**
+     * Enable group-commit ingestion for castVote: votes are queued and written
+     * in batches with one commit per batch. Pass null to go back to one
+     * INSERT and commit per vote.
+     * @param pipeline Started pipeline, or null
+     */
+    public static void setIngestionPipeline(VoteIngestionPipeline pipeline) {
+        ingestionPipeline = pipeline;
+    }
+
     /**
      * Cast a vote
      * @param vote Vote object
-     * @return true if vote cast successful, false otherwise
+     * @return true if vote cast successful, false otherwise (including when a
+     *         group-commit batch did not commit in time; see castVoteWithOutcome)
      */
     public boolean castVote(Vote vote) {
+        return castVoteWithOutcome(vote).isAccepted();
+    }
+
+    /**
+     * Cast a vote like castVote, telling a vote that failed apart from one
+     * whose outcome is not known yet
+     * @param vote Vote object; voteId is set when accepted
+     * @return ACCEPTED; ERROR if nothing was recorded; UNKNOWN if the
+     *         group-commit batch did not commit within the wait, so the vote
+     *         may still be recorded (do not retry it as a new vote)
+     */
+    public VoteOutcome castVoteWithOutcome(Vote vote) {
+        VoteIngestionPipeline pipeline = ingestionPipeline;
+        if (pipeline != null) {
+            return castVoteBatched(pipeline, vote);
+        }
+
         String sql = "INSERT INTO votes (voter_id, candidate_id, election_id) VALUES (?, ?, ?)";
+        String countSql = "UPDATE candidates SET vote_count = vote_count + 1 WHERE candidate_id = ?";
+
+        try (Connection conn = DatabaseConnection.getConnection("VoteDAO.castVote")) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+                pstmt.setString(1, vote.getVoterId());
+                pstmt.setInt(2, vote.getCandidateId());
+                pstmt.setInt(3, vote.getElectionId());
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                int rowsAffected = pstmt.executeUpdate();
 
-            pstmt.setString(1, vote.getVoterId());
-            pstmt.setInt(2, vote.getCandidateId());
-            pstmt.setInt(3, vote.getElectionId());
+                if (rowsAffected > 0) {
 
-            int rowsAffected = pstmt.executeUpdate();
+                    // Save generated ID
+                    ResultSet rs = pstmt.getGeneratedKeys();
+                    if (rs.next()) {
+                        vote.setVoteId(rs.getInt(1));
+                    }
 
-            if (rowsAffected > 0) {
+                    // ⭐ VERY IMPORTANT: update candidate's vote_count and the election results
+                    // in the same transaction as the vote
+                    try (PreparedStatement ps = conn.prepareStatement(countSql)) {
+                        ps.setInt(1, vote.getCandidateId());
+                        ps.executeUpdate();
+                    }
+                    addElectionResult(conn, vote.getElectionId(), vote.getCandidateId(), 1);
 
-                // Save generated ID
-                ResultSet rs = pstmt.getGeneratedKeys();
-                if (rs.next()) {
-                    vote.setVoteId(rs.getInt(1));
+                    conn.commit();
+                    DatabaseConnection.recordWrite(vote.getVoterId());
+                    VoteEvents.votesAccepted(vote.getElectionId(), vote.getCandidateId(), 1);
+                    VoteEvents.voterVoted(vote.getElectionId(), vote.getVoterId());
+                    return VoteOutcome.ACCEPTED;
                 }
 
-                // ⭐ VERY IMPORTANT: update candidate's vote_count
-                incrementCandidateVote(vote.getCandidateId());
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
 
-                return true;
+        } catch (SQLException e) {
+            System.err.println("Error casting vote: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return VoteOutcome.ERROR;
+    }
+
+    /**
+     * Hand the vote to the group-commit pipeline and wait until its batch is
+     * committed. If the wait ends first, the vote is still published when its
+     * batch commits.
+     */
+    private VoteOutcome castVoteBatched(VoteIngestionPipeline pipeline, Vote vote) {
+        CompletableFuture<Integer> result = pipeline.submit(vote);
+        try {
+            batchCommitted(vote, result.get(BATCH_WAIT_SECONDS, TimeUnit.SECONDS));
+            return VoteOutcome.ACCEPTED;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Error casting vote: " + e.getCause().getMessage());
+            return VoteOutcome.ERROR;
+        } catch (TimeoutException e) {
+            // The batch may still commit; the unique constraint stops a retry from counting twice
+            System.err.println("Vote outcome unknown: no commit within " + BATCH_WAIT_SECONDS + " s");
+        }
+
+        result.thenAccept(voteId -> batchCommitted(vote, voteId));
+        return VoteOutcome.UNKNOWN;
+    }
+
+    private static void batchCommitted(Vote vote, int voteId) {
+        vote.setVoteId(voteId);
+        DatabaseConnection.recordWrite(vote.getVoterId());
+        VoteEvents.votesAccepted(vote.getElectionId(), vote.getCandidateId(), 1);
+        VoteEvents.voterVoted(vote.getElectionId(), vote.getVoterId());
+    }
+
+    /**
+     * Cast a vote in a single transaction on one connection.
+     * Checks the election and candidate, marks the voter as voted, inserts the
+     * vote and increments the candidate's vote_count; all of it commits or
+     * none of it does. The unique (voter_id, election_id) constraint on votes
+     * catches concurrent duplicates.
+     * @param vote Vote object; voteId is set when accepted
+     * @return Outcome of the attempt
+     */
+    public VoteOutcome castVoteAtomic(Vote vote) {
+        return castVoteAtomic(vote, true);
+    }
+
+    /**
+     * Cast a vote in a single transaction, optionally leaving candidates.vote_count
+     * to an in-memory counter that flushes it later
+     * @param vote Vote object; voteId is set when accepted
+     * @param updateVoteCount true to increment candidates.vote_count in the transaction
+     * @return Outcome of the attempt
+     */
+    public VoteOutcome castVoteAtomic(Vote vote, boolean updateVoteCount) {
+        // Open by the same rule as Election.isOpenAt
+        String checkSql = "SELECT (SELECT (is_active = TRUE OR start_time IS NOT NULL) "
+                + "AND (start_time IS NULL OR start_time <= ?) AND (end_time IS NULL OR end_time > ?) "
+                + "FROM elections WHERE election_id = ?), "
+                + "(SELECT is_approved FROM candidates WHERE candidate_id = ?), "
+                + "(SELECT COUNT(*) FROM votes WHERE voter_id = ? AND election_id = ?)";
+        String voterSql = "UPDATE voters SET has_voted = 1 WHERE voter_id = ? AND is_approved = TRUE";
+        String insertSql = "INSERT INTO votes (voter_id, candidate_id, election_id) VALUES (?, ?, ?)";
+        String countSql = "UPDATE candidates SET vote_count = vote_count + 1 WHERE candidate_id = ?";
+
+        try (Connection conn = DatabaseConnection.getConnection("VoteDAO.castVoteAtomic")) {
+            conn.setAutoCommit(false);
+
+            try {
+                try (PreparedStatement ps = conn.prepareStatement(checkSql)) {
+                    Timestamp now = new Timestamp(System.currentTimeMillis());
+                    ps.setTimestamp(1, now);
+                    ps.setTimestamp(2, now);
+                    ps.setInt(3, vote.getElectionId());
+                    ps.setInt(4, vote.getCandidateId());
+                    ps.setString(5, vote.getVoterId());
+                    ps.setInt(6, vote.getElectionId());
+
+                    try (ResultSet rs = ps.executeQuery()) {
+                        rs.next();
+                        if (!rs.getBoolean(1)) return rollback(conn, VoteOutcome.ELECTION_CLOSED);
+                        if (!rs.getBoolean(2)) return rollback(conn, VoteOutcome.INVALID_CANDIDATE);
+                        if (rs.getInt(3) > 0) return rollback(conn, VoteOutcome.ALREADY_VOTED);
+                    }
+                }
+
+                try (PreparedStatement ps = conn.prepareStatement(voterSql)) {
+                    ps.setString(1, vote.getVoterId());
+                    if (ps.executeUpdate() == 0) return rollback(conn, VoteOutcome.VOTER_NOT_ELIGIBLE);
+                }
+
+                try (PreparedStatement ps = conn.prepareStatement(insertSql, Statement.RETURN_GENERATED_KEYS)) {
+                    ps.setString(1, vote.getVoterId());
+                    ps.setInt(2, vote.getCandidateId());
+                    ps.setInt(3, vote.getElectionId());
+                    ps.executeUpdate();
+
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        if (rs.next()) vote.setVoteId(rs.getInt(1));
+                    }
+                } catch (SQLException e) {
+                    if (isConstraintViolation(e)) return rollback(conn, VoteOutcome.ALREADY_VOTED);
+                    throw e;
+                }
+
+                if (updateVoteCount) {
+                    try (PreparedStatement ps = conn.prepareStatement(countSql)) {
+                        ps.setInt(1, vote.getCandidateId());
+                        ps.executeUpdate();
+                    }
+                }
+                addElectionResult(conn, vote.getElectionId(), vote.getCandidateId(), 1);
+
+                conn.commit();
+                DatabaseConnection.recordWrite(vote.getVoterId());
+                VoteEvents.votesAccepted(vote.getElectionId(), vote.getCandidateId(), 1);
+                VoteEvents.voterVoted(vote.getElectionId(), vote.getVoterId());
+                return VoteOutcome.ACCEPTED;
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
 
         } catch (SQLException e) {
@@ -47,7 +242,98 @@ public class VoteDAO {
             e.printStackTrace();
         }
 
-        return false;
+        return VoteOutcome.ERROR;
+    }
+
+    /**
+     * Apply votes that were already accepted elsewhere (e.g. replayed from the
+     * vote journal). Idempotent: a vote whose voter already has a vote in the
+     * election is skipped, so the same batch can be applied again after a crash.
+     * Inserted votes also mark the voter as voted and update the results
+     * aggregate, all in one transaction.
+     * @param votes Votes to apply; votedAt is kept when set
+     * @param updateVoteCount true to add the inserted votes to candidates.vote_count
+     * @return number of votes inserted, or -1 if the batch failed and was rolled back
+     */
+    public int applyVotes(List<Vote> votes, boolean updateVoteCount) {
+        String insertSql = "INSERT INTO votes (voter_id, candidate_id, election_id, voted_at) "
+                + "SELECT ?, ?, ?, COALESCE(?, CURRENT_TIMESTAMP) FROM DUAL "
+                + "WHERE NOT EXISTS (SELECT 1 FROM votes WHERE voter_id = ? AND election_id = ?)";
+        String voterSql = "UPDATE voters SET has_voted = 1 WHERE voter_id = ?";
+        String countSql = "UPDATE candidates SET vote_count = vote_count + ? WHERE candidate_id = ?";
+
+        if (votes.isEmpty()) return 0;
+
+        try (Connection conn = DatabaseConnection.getConnection("VoteDAO.applyVotes")) {
+            conn.setAutoCommit(false);
+
+            try {
+                int[] inserted;
+                try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
+                    for (Vote v : votes) {
+                        ps.setString(1, v.getVoterId());
+                        ps.setInt(2, v.getCandidateId());
+                        ps.setInt(3, v.getElectionId());
+                        ps.setTimestamp(4, v.getVotedAt());
+                        ps.setString(5, v.getVoterId());
+                        ps.setInt(6, v.getElectionId());
+                        ps.addBatch();
+                    }
+                    inserted = ps.executeBatch();
+                }
+
+                // Only the votes that were actually inserted count; sorted maps keep row lock order stable
+                Map<Integer, Integer> deltas = new TreeMap<>();
+                Map<Long, Integer> results = new TreeMap<>();
+                int count = 0;
+                try (PreparedStatement ps = conn.prepareStatement(voterSql)) {
+                    for (int i = 0; i < votes.size(); i++) {
+                        if (inserted[i] <= 0) continue;
+                        Vote v = votes.get(i);
+                        count++;
+                        deltas.merge(v.getCandidateId(), 1, Integer::sum);
+                        long key = ((long) v.getElectionId() << 32) | (v.getCandidateId() & 0xffffffffL);
+                        results.merge(key, 1, Integer::sum);
+                        ps.setString(1, v.getVoterId());
+                        ps.addBatch();
+                    }
+                    if (count > 0) ps.executeBatch();
+                }
+
+                if (updateVoteCount && !deltas.isEmpty()) {
+                    try (PreparedStatement ps = conn.prepareStatement(countSql)) {
+                        for (Map.Entry<Integer, Integer> e : deltas.entrySet()) {
+                            ps.setInt(1, e.getValue());
+                            ps.setInt(2, e.getKey());
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                    }
+                }
+                for (Map.Entry<Long, Integer> e : results.entrySet()) {
+                    addElectionResult(conn, (int) (e.getKey() >>> 32), (int) (long) e.getKey(), e.getValue());
+                }
+
+                conn.commit();
+                for (Map.Entry<Long, Integer> e : results.entrySet()) {
+                    VoteEvents.votesAccepted((int) (e.getKey() >>> 32), (int) (long) e.getKey(), e.getValue());
+                }
+                for (int i = 0; i < votes.size(); i++) {
+                    if (inserted[i] > 0) VoteEvents.voterVoted(votes.get(i).getElectionId(), votes.get(i).getVoterId());
+                }
+                return count;
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Error applying votes: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return -1;
     }
 
     /**
@@ -56,7 +342,7 @@ public class VoteDAO {
     public boolean incrementCandidateVote(int candidateId) {
         String sql = "UPDATE candidates SET vote_count = vote_count + 1 WHERE candidate_id = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnection("VoteDAO.incrementCandidateVote");
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, candidateId);
@@ -69,6 +355,33 @@ public class VoteDAO {
         return false;
     }
 
+    /**
+     * Check that a voter exists and is approved; the same condition
+     * castVoteAtomic applies when it marks the voter as voted
+     * @param voterId Voter ID
+     * @return true if the voter may vote, false otherwise (or on error)
+     */
+    public boolean isVoterEligible(String voterId) {
+        String sql = "SELECT COUNT(*) FROM voters WHERE voter_id = ? AND is_approved = TRUE";
+
+        try (Connection conn = DatabaseConnection.getConnection("VoteDAO.isVoterEligible");
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, voterId);
+            ResultSet rs = pstmt.executeQuery();
+
+            if (rs.next()) {
+                return rs.getInt(1) > 0;
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Error checking voter eligibility: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return false;
+    }
+
     /**
      * Check if voter has already voted in an election
      * @param voterId Voter ID
@@ -78,7 +391,7 @@ public class VoteDAO {
     public boolean hasVoted(String voterId, int electionId) {
         String sql = "SELECT COUNT(*) FROM votes WHERE voter_id = ? AND election_id = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnection("VoteDAO.hasVoted");
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, voterId);
@@ -97,6 +410,34 @@ public class VoteDAO {
         return false;
     }
 
+    /**
+     * Visit the voter ID of every vote in an election without building a list
+     * @param electionId Election ID
+     * @param action Called once per vote
+     * @return true if every row was visited, false on error
+     */
+    public boolean forEachVoterId(int electionId, Consumer<String> action) {
+        String sql = "SELECT voter_id FROM votes WHERE election_id = ?";
+
+        try (Connection conn = DatabaseConnection.getConnection("VoteDAO.forEachVoterId");
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, electionId);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                action.accept(rs.getString(1));
+            }
+            return true;
+
+        } catch (SQLException e) {
+            System.err.println("Error reading voter IDs by election: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return false;
+    }
+
     /**
      * Get all votes for an election
      * @param electionId Election ID
@@ -106,7 +447,7 @@ public class VoteDAO {
         List<Vote> votes = new ArrayList<>();
         String sql = "SELECT * FROM votes WHERE election_id = ? ORDER BY voted_at DESC";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection("VoteDAO.getVotesByElection");
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, electionId);
@@ -124,15 +465,42 @@ public class VoteDAO {
         return votes;
     }
 
+    /**
+     * Get all votes for an election as read-only rows
+     * @param electionId Election ID
+     * @return Vote rows, newest first
+     */
+    public List<VoteRow> getVoteRowsByElection(int electionId) {
+        List<VoteRow> rows = new ArrayList<>();
+        String sql = "SELECT " + VOTE_ROW_COLUMNS + " FROM votes WHERE election_id = ? ORDER BY voted_at DESC";
+
+        try (Connection conn = DatabaseConnection.getReadConnection("VoteDAO.getVoteRowsByElection");
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, electionId);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                rows.add(extractVoteRow(rs));
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Error getting vote rows by election: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return rows;
+    }
+
     /**
      * Get vote count for a candidate
      * @param candidateId Candidate ID
      * @return Vote count
      */
     public int getVoteCountForCandidate(int candidateId) {
-        String sql = "SELECT COUNT(*) FROM votes WHERE candidate_id = ?";
+        String sql = "SELECT COALESCE(SUM(votes), 0) FROM election_results WHERE candidate_id = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnection("VoteDAO.getVoteCountForCandidate");
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, candidateId);
@@ -156,9 +524,9 @@ public class VoteDAO {
      * @return Total vote count
      */
     public int getTotalVotes(int electionId) {
-        String sql = "SELECT COUNT(*) FROM votes WHERE election_id = ?";
+        String sql = "SELECT COALESCE(SUM(votes), 0) FROM election_results WHERE election_id = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection("VoteDAO.getTotalVotes");
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, electionId);
@@ -176,6 +544,121 @@ public class VoteDAO {
         return 0;
     }
 
+    /**
+     * Get per-candidate results for an election from the maintained aggregate
+     * @param electionId Election ID
+     * @return candidate ID -> votes, highest first
+     */
+    public Map<Integer, Integer> getResultsByElection(int electionId) {
+        try {
+            return queryResults(electionId, "VoteDAO.getResultsByElection");
+        } catch (SQLException e) {
+            System.err.println("Error getting election results: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return new LinkedHashMap<>();
+    }
+
+    /**
+     * Like getResultsByElection, but reports failures to the caller (used by
+     * live results, which must not mistake an error for an empty election)
+     * @param electionId Election ID
+     * @return candidate ID -> votes, highest first
+     */
+    public Map<Integer, Integer> queryResultsByElection(int electionId) throws SQLException {
+        return queryResults(electionId, "VoteDAO.queryResultsByElection");
+    }
+
+    private Map<Integer, Integer> queryResults(int electionId, String operation) throws SQLException {
+        Map<Integer, Integer> results = new LinkedHashMap<>();
+        String sql = "SELECT candidate_id, votes FROM election_results WHERE election_id = ? ORDER BY votes DESC, candidate_id";
+
+        try (Connection conn = DatabaseConnection.getReadConnection(operation);
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, electionId);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                results.put(rs.getInt(1), rs.getInt(2));
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Count an election's votes per candidate straight from the votes table
+     * @param electionId Election ID
+     * @return candidate ID -> votes, for candidates with at least one vote
+     */
+    public Map<Integer, Integer> countVotesByCandidate(int electionId) {
+        try {
+            return countVotes(electionId, "VoteDAO.countVotesByCandidate");
+        } catch (SQLException e) {
+            System.err.println("Error counting votes: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return new LinkedHashMap<>();
+    }
+
+    /**
+     * Like countVotesByCandidate, but reports failures to the caller (used by
+     * the leaderboard, which must not mistake an error for an empty election)
+     * @param electionId Election ID
+     * @return candidate ID -> votes, for candidates with at least one vote
+     */
+    public Map<Integer, Integer> queryVoteCountsByCandidate(int electionId) throws SQLException {
+        return countVotes(electionId, "VoteDAO.queryVoteCountsByCandidate");
+    }
+
+    private Map<Integer, Integer> countVotes(int electionId, String operation) throws SQLException {
+        Map<Integer, Integer> counts = new LinkedHashMap<>();
+        String sql = "SELECT candidate_id, COUNT(*) FROM votes WHERE election_id = ? GROUP BY candidate_id ORDER BY candidate_id";
+
+        try (Connection conn = DatabaseConnection.getReadConnection(operation);
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, electionId);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                counts.put(rs.getInt(1), rs.getInt(2));
+            }
+        }
+
+        return counts;
+    }
+
+    /**
+     * Recompute the election_results aggregate for an election from the votes table
+     * @param electionId Election ID
+     * @return true if rebuild successful, false otherwise
+     */
+    public boolean rebuildElectionResults(int electionId) {
+        try (Connection conn = DatabaseConnection.getConnection("VoteDAO.rebuildElectionResults")) {
+            conn.setAutoCommit(false);
+
+            try {
+                rebuildElectionResults(conn, electionId);
+                conn.commit();
+                VoteEvents.resultsReset(electionId);
+                return true;
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Error rebuilding election results: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
     /**
      * Get all votes
      * @return List of all votes
@@ -184,7 +667,7 @@ public class VoteDAO {
         List<Vote> votes = new ArrayList<>();
         String sql = "SELECT * FROM votes ORDER BY voted_at DESC";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection("VoteDAO.getAllVotes");
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -200,6 +683,47 @@ public class VoteDAO {
         return votes;
     }
 
+    /**
+     * Stream all votes for an election without loading them into memory.
+     * Close the stream (try-with-resources) to release the connection.
+     * @param electionId Election ID
+     * @return Stream of vote rows, newest first
+     */
+    public Stream<VoteRow> streamVotesByElection(int electionId) {
+        String sql = "SELECT " + VOTE_ROW_COLUMNS + " FROM votes WHERE election_id = ? ORDER BY voted_at DESC";
+
+        try {
+            return JdbcStreams.stream(DatabaseConnection.getReadConnection("VoteDAO.streamVotesByElection"), sql,
+                    ps -> ps.setInt(1, electionId), this::extractVoteRow);
+
+        } catch (SQLException e) {
+            System.err.println("Error streaming votes by election: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return Stream.empty();
+    }
+
+    /**
+     * Stream all votes without loading them into memory.
+     * Close the stream (try-with-resources) to release the connection.
+     * @return Stream of vote rows, newest first
+     */
+    public Stream<VoteRow> streamAllVotes() {
+        String sql = "SELECT " + VOTE_ROW_COLUMNS + " FROM votes ORDER BY voted_at DESC";
+
+        try {
+            return JdbcStreams.stream(DatabaseConnection.getReadConnection("VoteDAO.streamAllVotes"), sql,
+                    ps -> { }, this::extractVoteRow);
+
+        } catch (SQLException e) {
+            System.err.println("Error streaming all votes: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return Stream.empty();
+    }
+
     /**
      * Delete all votes for an election
      * @param electionId Election ID
@@ -207,13 +731,26 @@ public class VoteDAO {
      */
     public boolean deleteVotesByElection(int electionId) {
         String sql = "DELETE FROM votes WHERE election_id = ?";
+        String resultsSql = "DELETE FROM election_results WHERE election_id = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getConnection("VoteDAO.deleteVotesByElection")) {
+            conn.setAutoCommit(false);
 
-            pstmt.setInt(1, electionId);
-            pstmt.executeUpdate();
-            return true;
+            try (PreparedStatement pstmt = conn.prepareStatement(sql);
+                 PreparedStatement results = conn.prepareStatement(resultsSql)) {
+
+                pstmt.setInt(1, electionId);
+                pstmt.executeUpdate();
+                results.setInt(1, electionId);
+                results.executeUpdate();
+                conn.commit();
+                VoteEvents.resultsReset(electionId);
+                return true;
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
 
         } catch (SQLException e) {
             System.err.println("Error deleting votes: " + e.getMessage());
@@ -227,14 +764,41 @@ public class VoteDAO {
      * @return true if deletion successful, false otherwise
      */
     public boolean deleteVotesByVoter(String voterId) {
+        String electionsSql = "SELECT DISTINCT election_id FROM votes WHERE voter_id = ?";
         String sql = "DELETE FROM votes WHERE voter_id = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getConnection("VoteDAO.deleteVotesByVoter")) {
+            conn.setAutoCommit(false);
 
-            pstmt.setString(1, voterId);
-            int rows = pstmt.executeUpdate();
-            return rows > 0; // or just return true if you don't care about rows
+            try {
+                List<Integer> elections = new ArrayList<>();
+                try (PreparedStatement ps = conn.prepareStatement(electionsSql)) {
+                    ps.setString(1, voterId);
+                    ResultSet rs = ps.executeQuery();
+                    while (rs.next()) elections.add(rs.getInt(1));
+                }
+
+                int rows;
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setString(1, voterId);
+                    rows = pstmt.executeUpdate();
+                }
+
+                // Keep the results aggregate in step with the remaining votes
+                for (int electionId : elections) {
+                    rebuildElectionResults(conn, electionId);
+                }
+
+                conn.commit();
+                for (int electionId : elections) {
+                    VoteEvents.resultsReset(electionId);
+                }
+                return rows > 0; // or just return true if you don't care about rows
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
 
         } catch (SQLException e) {
             System.err.println("Error deleting votes by voter: " + e.getMessage());
@@ -244,6 +808,56 @@ public class VoteDAO {
     }
 
 
+    /**
+     * Add votes to the election_results aggregate on the caller's connection / transaction
+     */
+    static void addElectionResult(Connection conn, int electionId, int candidateId, int votes) throws SQLException {
+        String sql = "INSERT INTO election_results (election_id, candidate_id, votes) VALUES (?, ?, ?) "
+                + "ON DUPLICATE KEY UPDATE votes = votes + ?";
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, electionId);
+            ps.setInt(2, candidateId);
+            ps.setInt(3, votes);
+            ps.setInt(4, votes);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Replace an election's aggregate rows with counts from the votes table
+     */
+    private void rebuildElectionResults(Connection conn, int electionId) throws SQLException {
+        String deleteSql = "DELETE FROM election_results WHERE election_id = ?";
+        String insertSql = "INSERT INTO election_results (election_id, candidate_id, votes) "
+                + "SELECT election_id, candidate_id, COUNT(*) FROM votes WHERE election_id = ? "
+                + "GROUP BY election_id, candidate_id";
+
+        try (PreparedStatement delete = conn.prepareStatement(deleteSql);
+             PreparedStatement insert = conn.prepareStatement(insertSql)) {
+            delete.setInt(1, electionId);
+            delete.executeUpdate();
+            insert.setInt(1, electionId);
+            insert.executeUpdate();
+        }
+    }
+
+    /**
+     * Roll back the current transaction and report the given outcome
+     */
+    private VoteOutcome rollback(Connection conn, VoteOutcome outcome) throws SQLException {
+        conn.rollback();
+        return outcome;
+    }
+
+    /**
+     * Integrity constraint violations (duplicate key, foreign key) use SQLState class 23
+     */
+    private boolean isConstraintViolation(SQLException e) {
+        return e instanceof SQLIntegrityConstraintViolationException
+                || (e.getSQLState() != null && e.getSQLState().startsWith("23"));
+    }
+
     /**
      * Extract Vote object from ResultSet
      * @param rs ResultSet
@@ -259,4 +873,11 @@ public class VoteDAO {
         vote.setVotedAt(rs.getTimestamp("voted_at"));
         return vote;
     }
+
+    /**
+     * Map a row selected with VOTE_ROW_COLUMNS, by column index
+     */
+    private VoteRow extractVoteRow(ResultSet rs) throws SQLException {
+        return new VoteRow(rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getInt(4), rs.getTimestamp(5));
+    }
 }
@@ -0,0 +1,84 @@
+package dao;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Process-wide notifications of committed vote changes.
+ *
+ * VoteDAO publishes after each commit: every accepted vote (directly, through
+ * the ingestion pipeline, or replayed from the journal by applyVotes), and a
+ * reset whenever an election's votes are deleted or its results rebuilt.
+ * Listeners run on the committing thread, so they must be quick and must not
+ * call back into the database.
+ */
+public final class VoteEvents {
+
+    /**
+     * Receiver of vote changes
+     */
+    public interface Listener {
+
+        /**
+         * Votes for a candidate were committed
+         * @param votes number of votes, usually 1
+         */
+        void votesAccepted(int electionId, int candidateId, int votes);
+
+        /**
+         * A voter's vote was committed; follows votesAccepted for the same vote
+         */
+        default void voterVoted(int electionId, String voterId) {
+        }
+
+        /**
+         * An election's votes changed other than by accepted votes;
+         * reload its results from the database
+         */
+        default void resultsReset(int electionId) {
+        }
+    }
+
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private VoteEvents() {
+    }
+
+    public static void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    static void votesAccepted(int electionId, int candidateId, int votes) {
+        for (Listener l : listeners) {
+            try {
+                l.votesAccepted(electionId, candidateId, votes);
+            } catch (RuntimeException e) {
+                System.err.println("Vote listener failed: " + e.getMessage());
+            }
+        }
+    }
+
+    static void voterVoted(int electionId, String voterId) {
+        for (Listener l : listeners) {
+            try {
+                l.voterVoted(electionId, voterId);
+            } catch (RuntimeException e) {
+                System.err.println("Vote listener failed: " + e.getMessage());
+            }
+        }
+    }
+
+    static void resultsReset(int electionId) {
+        for (Listener l : listeners) {
+            try {
+                l.resultsReset(electionId);
+            } catch (RuntimeException e) {
+                System.err.println("Vote listener failed: " + e.getMessage());
+            }
+        }
+    }
+}
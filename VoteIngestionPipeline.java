@@ -0,0 +1,260 @@
+package dao;
+
+import models.Vote;
+import utils.DatabaseConnection;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Group-commit vote writer.
+ *
+ * Concurrent castVote callers put their vote on a bounded queue. A single
+ * writer thread drains it into JDBC batch inserts and commits each batch
+ * once, together with the aggregated vote_count and election_results
+ * updates for the batch.
+ * Each caller's future completes with its generated vote_id after the
+ * commit, so an acknowledged vote is durable.
+ *
+ * If a batch fails (for example one duplicate vote), it is rolled back and
+ * its votes are retried one by one so only the offending caller fails.
+ */
+public class VoteIngestionPipeline implements AutoCloseable {
+
+    private static final String INSERT_SQL = "INSERT INTO votes (voter_id, candidate_id, election_id) VALUES (?, ?, ?)";
+    private static final String COUNT_SQL = "UPDATE candidates SET vote_count = vote_count + ? WHERE candidate_id = ?";
+
+    private static final class Pending {
+        final Vote vote;
+        final CompletableFuture<Integer> result = new CompletableFuture<>();
+
+        Pending(Vote vote) {
+            this.vote = vote;
+        }
+    }
+
+    private final BlockingQueue<Pending> queue;
+    private final int batchSize;
+    private final long maxLingerNanos;
+    private final boolean updateVoteCount;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder votesWritten = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    /**
+     * @param queueCapacity maximum votes waiting to be written; submit blocks beyond this
+     * @param batchSize maximum votes per batch / commit
+     * @param maxLingerMillis how long the writer waits to fill a batch before committing it
+     * @param updateVoteCount true to add the batch's votes to candidates.vote_count in the same commit
+     */
+    public VoteIngestionPipeline(int queueCapacity, int batchSize, long maxLingerMillis, boolean updateVoteCount) {
+        if (batchSize < 1 || queueCapacity < batchSize) {
+            throw new IllegalArgumentException("Invalid pipeline size: queue=" + queueCapacity + ", batch=" + batchSize);
+        }
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.maxLingerNanos = TimeUnit.MILLISECONDS.toNanos(maxLingerMillis);
+        this.updateVoteCount = updateVoteCount;
+        this.writer = new Thread(this::run, "vote-ingestion-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queue a vote for the next batch
+     * @param vote Vote object
+     * @return future completing with the generated vote_id once the batch is committed
+     */
+    public CompletableFuture<Integer> submit(Vote vote) {
+        Pending p = new Pending(vote);
+        if (!running) {
+            p.result.completeExceptionally(new IllegalStateException("Vote ingestion pipeline is closed"));
+            return p.result;
+        }
+        try {
+            queue.put(p);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            p.result.completeExceptionally(e);
+            return p.result;
+        }
+        // Closed while this vote was being queued: the writer may already have
+        // exited, so take it back unless the writer got to it first
+        if (!running && queue.remove(p)) {
+            p.result.completeExceptionally(new IllegalStateException("Vote ingestion pipeline is closed"));
+        }
+        return p.result;
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    public long getVotesWritten() {
+        return votesWritten.sum();
+    }
+
+    public long getFallbacks() {
+        return fallbacks.sum();
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Stop accepting votes, write everything already queued and stop the writer
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ==========================================================
+    //                         WRITER
+    // ==========================================================
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                long deadline = System.nanoTime() + maxLingerNanos;
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) continue;
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+
+                write(batch);
+
+            } catch (InterruptedException e) {
+                // Keep draining until close() has flushed the queue; the votes
+                // already taken for this batch are written, not dropped
+                write(batch);
+            } catch (RuntimeException e) {
+                fail(batch, e);
+            } finally {
+                batch.clear();
+            }
+        }
+
+        // Anything a racing submit left behind would otherwise never complete
+        List<Pending> leftovers = new ArrayList<>();
+        queue.drainTo(leftovers);
+        for (Pending p : leftovers) {
+            p.result.completeExceptionally(new IllegalStateException("Vote ingestion pipeline is closed"));
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        try {
+            List<Integer> ids = insertBatch(batch);
+            batches.increment();
+            votesWritten.add(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result.complete(ids.get(i));
+            }
+        } catch (SQLException e) {
+            fallbacks.increment();
+            for (Pending p : batch) {
+                try {
+                    List<Integer> ids = insertBatch(List.of(p));
+                    votesWritten.increment();
+                    p.result.complete(ids.get(0));
+                } catch (SQLException single) {
+                    p.result.completeExceptionally(single);
+                }
+            }
+        }
+    }
+
+    /**
+     * Insert the votes and their vote_count deltas in one transaction
+     * @return generated vote IDs in batch order (0 if the driver returned none)
+     */
+    private List<Integer> insertBatch(List<Pending> batch) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection("VoteIngestionPipeline.insertBatch")) {
+            conn.setAutoCommit(false);
+
+            try {
+                List<Integer> ids = new ArrayList<>(batch.size());
+
+                try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                    for (Pending p : batch) {
+                        ps.setString(1, p.vote.getVoterId());
+                        ps.setInt(2, p.vote.getCandidateId());
+                        ps.setInt(3, p.vote.getElectionId());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        while (rs.next()) ids.add(rs.getInt(1));
+                    }
+                }
+                while (ids.size() < batch.size()) ids.add(0);
+
+                if (updateVoteCount) {
+                    // Sorted so concurrent writers lock candidate rows in the same order
+                    Map<Integer, Integer> deltas = new TreeMap<>();
+                    for (Pending p : batch) deltas.merge(p.vote.getCandidateId(), 1, Integer::sum);
+
+                    try (PreparedStatement ps = conn.prepareStatement(COUNT_SQL)) {
+                        for (Map.Entry<Integer, Integer> e : deltas.entrySet()) {
+                            ps.setInt(1, e.getValue());
+                            ps.setInt(2, e.getKey());
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                    }
+                }
+
+                // Results aggregate, one upsert per (election, candidate) pair in key order
+                Map<Long, Integer> results = new TreeMap<>();
+                for (Pending p : batch) {
+                    long key = ((long) p.vote.getElectionId() << 32) | (p.vote.getCandidateId() & 0xffffffffL);
+                    results.merge(key, 1, Integer::sum);
+                }
+                for (Map.Entry<Long, Integer> e : results.entrySet()) {
+                    VoteDAO.addElectionResult(conn, (int) (e.getKey() >>> 32), (int) (long) e.getKey(), e.getValue());
+                }
+
+                conn.commit();
+                return ids;
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private void fail(List<Pending> batch, Throwable cause) {
+        System.err.println("Error writing vote batch: " + cause.getMessage());
+        for (Pending p : batch) p.result.completeExceptionally(cause);
+    }
+}
@@ -0,0 +1,630 @@
+package services;
+
+import dao.VoteDAO;
+import models.Vote;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of accepted votes in memory-mapped segment files.
+ *
+ * Each vote is a fixed 64-byte record:
+ * <pre>
+ *   0  seq          long   1, 2, 3, ... with no gaps
+ *   8  candidateId  int
+ *  12  electionId   int
+ *  16  timestamp    long   epoch millis
+ *  24  voterIdLen   byte
+ *  25  voterId      32 bytes, UTF-8, zero padded (voters.voter_id is VARCHAR(32))
+ *  57  unused       3 bytes
+ *  60  crc32        int    over bytes 0..59
+ * </pre>
+ * Appends go straight into the mapped segment. A sync thread forces the
+ * written pages to disk every syncIntervalMicros, so concurrent callers of
+ * {@link #appendDurable(Vote)} share one fsync. A failed fsync is sticky:
+ * the sync thread stops, and every later append and wait rethrows it.
+ *
+ * An applier copies durable records into the database in batches through
+ * {@link VoteDAO#applyVotes(List, boolean)} and records the last applied
+ * sequence in a checkpoint file. Applying is idempotent, so anything after
+ * the checkpoint is simply applied again on the next start. Records marked
+ * uncounted are added to candidates.vote_count when applied, even by an
+ * applier that otherwise leaves vote_count to a counter engine.
+ */
+public class VoteJournal implements AutoCloseable {
+
+    public static final int RECORD_SIZE = 64;
+    public static final int MAX_VOTER_ID_BYTES = 32;
+
+    private static final String SEGMENT_PREFIX = "votes-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    /**
+     * One journal record
+     */
+    public static final class Entry {
+        private final long seq;
+        private final long voterHash;
+        private final int candidateId;
+        private final int electionId;
+        private final long timestamp;
+        private final String voterId;
+
+        Entry(long seq, long voterHash, int candidateId, int electionId, long timestamp, String voterId) {
+            this.seq = seq;
+            this.voterHash = voterHash;
+            this.candidateId = candidateId;
+            this.electionId = electionId;
+            this.timestamp = timestamp;
+            this.voterId = voterId;
+        }
+
+        public long getSeq() { return seq; }
+        public long getVoterHash() { return voterHash; }
+        public int getCandidateId() { return candidateId; }
+        public int getElectionId() { return electionId; }
+        public long getTimestamp() { return timestamp; }
+        public String getVoterId() { return voterId; }
+
+        public Vote toVote() {
+            Vote vote = new Vote();
+            vote.setVoterId(voterId);
+            vote.setCandidateId(candidateId);
+            vote.setElectionId(electionId);
+            vote.setVotedAt(new Timestamp(timestamp));
+            return vote;
+        }
+    }
+
+    /** One mapped segment file holding records firstSeq .. firstSeq + capacity - 1 */
+    private static final class Segment {
+        final long firstSeq;
+        final int capacity;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+
+        Segment(Path file, long firstSeq, int capacity) throws IOException {
+            this.firstSeq = firstSeq;
+            this.capacity = capacity;
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * RECORD_SIZE);
+        }
+
+        boolean contains(long seq) {
+            return seq >= firstSeq && seq < firstSeq + capacity;
+        }
+
+        int offset(long seq) {
+            return (int) (seq - firstSeq) * RECORD_SIZE;
+        }
+    }
+
+    private final Path dir;
+    private final int recordsPerSegment;
+    private final long syncIntervalNanos;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final List<Segment> segments = new ArrayList<>();
+    private final byte[] record = new byte[RECORD_SIZE];
+    private final CRC32 crc = new CRC32();
+    private long nextSeq;
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+    private volatile long writtenSeq;
+    private volatile long durableSeq;
+    private volatile long appliedSeq;
+    private volatile boolean closed;
+    private volatile IOException failure;
+    private volatile long syncTimeoutNanos = TimeUnit.SECONDS.toNanos(5);
+    /** Sequences whose votes no in-memory counter took; see markUncounted */
+    private final Set<Long> uncounted = ConcurrentHashMap.newKeySet();
+
+    private final Thread syncer;
+    private volatile Thread applier;
+
+    private final LongAdder appends = new LongAdder();
+    private final LongAdder syncs = new LongAdder();
+
+    /**
+     * Open the journal in dir with 1M-record (64 MB) segments and a 1 ms sync interval
+     */
+    public VoteJournal(Path dir) throws IOException {
+        this(dir, 1 << 20, 1_000);
+    }
+
+    /**
+     * Open or create the journal, recovering the last valid record
+     * @param dir Directory holding the segment files and checkpoint
+     * @param recordsPerSegment Records per segment file
+     * @param syncIntervalMicros How long the sync thread gathers appends before each fsync
+     * @throws IOException if the directory or segments cannot be opened
+     */
+    public VoteJournal(Path dir, int recordsPerSegment, long syncIntervalMicros) throws IOException {
+        if (recordsPerSegment < 1 || (long) recordsPerSegment * RECORD_SIZE > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid segment size: " + recordsPerSegment);
+        }
+        this.dir = Files.createDirectories(dir);
+        this.recordsPerSegment = recordsPerSegment;
+        this.syncIntervalNanos = TimeUnit.MICROSECONDS.toNanos(syncIntervalMicros);
+
+        recover();
+        this.appliedSeq = Math.min(readCheckpoint(), writtenSeq);
+
+        this.syncer = new Thread(this::syncLoop, "vote-journal-sync");
+        this.syncer.setDaemon(true);
+        this.syncer.start();
+    }
+
+    /**
+     * Write a vote to the journal without waiting for it to reach disk
+     * @param vote Vote to record; votedAt defaults to now
+     * @return the record's sequence number
+     * @throws IOException if a new segment cannot be created
+     */
+    public long append(Vote vote) throws IOException {
+        checkFailure();
+        byte[] voterId = vote.getVoterId().getBytes(StandardCharsets.UTF_8);
+        if (voterId.length > MAX_VOTER_ID_BYTES) {
+            throw new IllegalArgumentException("Voter ID longer than " + MAX_VOTER_ID_BYTES + " bytes: " + vote.getVoterId());
+        }
+        long timestamp = vote.getVotedAt() != null ? vote.getVotedAt().getTime() : System.currentTimeMillis();
+
+        appendLock.lock();
+        try {
+            if (closed) throw new IOException("Vote journal is closed");
+            long seq = nextSeq;
+            Segment segment = segmentForAppend(seq);
+
+            ByteBuffer r = ByteBuffer.wrap(record);
+            r.putLong(0, seq);
+            r.putInt(8, vote.getCandidateId());
+            r.putInt(12, vote.getElectionId());
+            r.putLong(16, timestamp);
+            record[24] = (byte) voterId.length;
+            System.arraycopy(voterId, 0, record, 25, voterId.length);
+            for (int i = 25 + voterId.length; i < 60; i++) record[i] = 0;
+            crc.reset();
+            crc.update(record, 0, 60);
+            r.putInt(60, (int) crc.getValue());
+
+            segment.buffer.position(segment.offset(seq));
+            segment.buffer.put(record);
+
+            nextSeq = seq + 1;
+            writtenSeq = seq;
+            appends.increment();
+            return seq;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Block until the record with the given sequence has been forced to disk
+     * @throws IOException if syncing failed, the journal was closed or the
+     *         sync timeout passed before that happens
+     */
+    public void awaitDurable(long seq) throws IOException, InterruptedException {
+        if (durableSeq >= seq) return;
+        long deadline = System.nanoTime() + syncTimeoutNanos;
+        syncLock.lock();
+        try {
+            while (durableSeq < seq) {
+                checkFailure();
+                if (closed && !syncer.isAlive()) throw new IOException("Vote journal closed before record " + seq + " was synced");
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) throw new IOException("Timed out waiting for record " + seq + " to be synced");
+                synced.await(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(10)), TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Longest time awaitDurable waits for an fsync; 5 seconds by default
+     */
+    public void setSyncTimeoutMillis(long millis) {
+        syncTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * Note that the caller did not count the vote at seq (its outcome was
+     * unknown), so applying it must update candidates.vote_count
+     */
+    public void markUncounted(long seq) {
+        uncounted.add(seq);
+    }
+
+    /**
+     * @return the fsync failure that stopped the journal, or null
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Append a vote and wait for the batched fsync that covers it
+     * @return the record's sequence number
+     */
+    public long appendDurable(Vote vote) throws IOException, InterruptedException {
+        long seq = append(vote);
+        awaitDurable(seq);
+        return seq;
+    }
+
+    /**
+     * Apply every durable record after the checkpoint to the database, in batches
+     * @param voteDAO DAO used to apply the votes
+     * @param updateVoteCount true to update candidates.vote_count as well;
+     *        records marked uncounted update it either way
+     * @param batchSize Records per transaction
+     * @return number of records applied, or -1 if a batch failed (the checkpoint stays at the last good batch)
+     */
+    public synchronized long replayPending(VoteDAO voteDAO, boolean updateVoteCount, int batchSize) {
+        long target = durableSeq;
+        long applied = 0;
+        List<Vote> batch = new ArrayList<>(batchSize);
+        List<Vote> toCount = new ArrayList<>();
+        List<Long> toCountSeqs = new ArrayList<>();
+
+        while (appliedSeq < target) {
+            long from = appliedSeq + 1;
+            long to = Math.min(target, appliedSeq + batchSize);
+            batch.clear();
+            toCount.clear();
+            toCountSeqs.clear();
+            read(from, to, e -> {
+                if (!updateVoteCount && uncounted.contains(e.getSeq())) {
+                    toCount.add(e.toVote());
+                    toCountSeqs.add(e.getSeq());
+                } else {
+                    batch.add(e.toVote());
+                }
+            });
+
+            // Separate transactions; a retry after a failure skips what was already inserted
+            if (voteDAO.applyVotes(batch, updateVoteCount) < 0) return -1;
+            if (voteDAO.applyVotes(toCount, true) < 0) return -1;
+            uncounted.removeAll(toCountSeqs);
+            appliedSeq = to;
+            applied += batch.size() + toCount.size();
+            try {
+                writeCheckpoint(to);
+            } catch (IOException e) {
+                System.err.println("Error writing vote journal checkpoint: " + e.getMessage());
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Start a background thread that keeps applying durable records to the database
+     * @param voteDAO DAO used to apply the votes
+     * @param updateVoteCount true to update candidates.vote_count as well
+     * @param batchSize Records per transaction
+     * @param intervalMillis Pause between passes when the journal is caught up
+     */
+    public void startApplier(VoteDAO voteDAO, boolean updateVoteCount, int batchSize, long intervalMillis) {
+        Thread t = new Thread(() -> {
+            while (!closed) {
+                long lag = durableSeq - appliedSeq;
+                if (lag > 0 && replayPending(voteDAO, updateVoteCount, batchSize) < 0) {
+                    LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+                } else if (lag < batchSize) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(intervalMillis));
+                }
+            }
+            try {
+                syncer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            replayPending(voteDAO, updateVoteCount, batchSize);
+        }, "vote-journal-applier");
+        t.setDaemon(true);
+        applier = t;
+        t.start();
+    }
+
+    /**
+     * Read records in sequence order
+     * @param fromSeq First sequence to read (1 for the whole journal)
+     * @param action Called for each durable record from fromSeq on
+     */
+    public void forEach(long fromSeq, Consumer<Entry> action) {
+        read(Math.max(1, fromSeq), durableSeq, action);
+    }
+
+    /**
+     * Count votes per candidate for an election straight from the journal,
+     * one vote per voter
+     * @param electionId Election ID
+     * @return candidate ID -> votes, ordered by candidate ID
+     */
+    public Map<Integer, Long> recount(int electionId) {
+        Map<Integer, Long> counts = new TreeMap<>();
+        Set<Long> voters = new HashSet<>();
+        long last = durableSeq;
+
+        for (Segment segment : snapshotSegments()) {
+            ByteBuffer buf = segment.buffer.duplicate();
+            long end = Math.min(last, segment.firstSeq + segment.capacity - 1);
+            for (long seq = segment.firstSeq; seq <= end; seq++) {
+                int offset = segment.offset(seq);
+                if (buf.getInt(offset + 12) != electionId) continue;
+                if (voters.add(voterHash(buf, offset + 25, buf.get(offset + 24)))) {
+                    counts.merge(buf.getInt(offset + 8), 1L, Long::sum);
+                }
+            }
+        }
+        return counts;
+    }
+
+    public long getWrittenSeq() {
+        return writtenSeq;
+    }
+
+    public long getDurableSeq() {
+        return durableSeq;
+    }
+
+    public long getAppliedSeq() {
+        return appliedSeq;
+    }
+
+    public long getAppends() {
+        return appends.sum();
+    }
+
+    public long getSyncs() {
+        return syncs.sum();
+    }
+
+    /**
+     * Stop accepting appends, sync what was written, let the applier catch up
+     * and release the files
+     */
+    @Override
+    public void close() {
+        appendLock.lock();
+        try {
+            closed = true;
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            syncer.join();
+            Thread t = applier;
+            if (t != null) t.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Segment segment : snapshotSegments()) {
+            try {
+                segment.channel.close();
+            } catch (IOException e) {
+                System.err.println("Error closing vote journal segment: " + e.getMessage());
+            }
+        }
+    }
+
+    // ==========================================================
+    //                       INTERNALS
+    // ==========================================================
+
+    private void syncLoop() {
+        while (true) {
+            boolean stopping = closed;
+            long target = writtenSeq;
+            if (target > durableSeq) {
+                try {
+                    for (Segment segment : snapshotSegments()) {
+                        if (segment.firstSeq + segment.capacity > durableSeq + 1 && segment.firstSeq <= target) {
+                            segment.buffer.force();
+                        }
+                    }
+                    syncs.increment();
+                    durableSeq = target;
+                    syncLock.lock();
+                    try {
+                        synced.signalAll();
+                    } finally {
+                        syncLock.unlock();
+                    }
+                } catch (RuntimeException e) {
+                    // Retrying would keep every waiter blocked on a disk that may never recover
+                    System.err.println("Error syncing vote journal, no further votes will be journaled: " + e.getMessage());
+                    failure = new IOException("Vote journal sync failed: " + e.getMessage(), e);
+                    syncLock.lock();
+                    try {
+                        synced.signalAll();
+                    } finally {
+                        syncLock.unlock();
+                    }
+                    return;
+                }
+            }
+            if (stopping && durableSeq >= writtenSeq) return;
+            LockSupport.parkNanos(syncIntervalNanos);
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        IOException f = failure;
+        if (f != null) throw new IOException(f.getMessage(), f);
+    }
+
+    /** Caller holds appendLock */
+    private Segment segmentForAppend(long seq) throws IOException {
+        Segment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (last != null && last.contains(seq)) return last;
+
+        Segment segment = new Segment(segmentPath(seq), seq, recordsPerSegment);
+        segments.add(segment);
+        return segment;
+    }
+
+    private List<Segment> snapshotSegments() {
+        appendLock.lock();
+        try {
+            return new ArrayList<>(segments);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void read(long from, long to, Consumer<Entry> action) {
+        if (from > to) return;
+        byte[] voterId = new byte[MAX_VOTER_ID_BYTES];
+        for (Segment segment : snapshotSegments()) {
+            long last = segment.firstSeq + segment.capacity - 1;
+            if (last < from || segment.firstSeq > to) continue;
+
+            ByteBuffer buf = segment.buffer.duplicate();
+            for (long seq = Math.max(from, segment.firstSeq); seq <= Math.min(to, last); seq++) {
+                int offset = segment.offset(seq);
+                int length = buf.get(offset + 24);
+                buf.position(offset + 25);
+                buf.get(voterId, 0, length);
+                action.accept(new Entry(buf.getLong(offset), voterHash(buf, offset + 25, length),
+                        buf.getInt(offset + 8), buf.getInt(offset + 12), buf.getLong(offset + 16),
+                        new String(voterId, 0, length, StandardCharsets.UTF_8)));
+            }
+        }
+    }
+
+    /**
+     * Map the existing segments and find the last valid record. A torn or
+     * corrupt record ends the journal; segments after it are renamed *.corrupt.
+     */
+    private void recover() throws IOException {
+        Map<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                files.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), file);
+            }
+        }
+
+        long expected = 1;
+        boolean ended = false;
+        for (Map.Entry<Long, Path> f : files.entrySet()) {
+            if (ended || f.getKey() != expected) {
+                quarantine(f.getValue());
+                ended = true;
+                continue;
+            }
+            int capacity = (int) Math.max(recordsPerSegment, Files.size(f.getValue()) / RECORD_SIZE);
+            Segment segment = new Segment(f.getValue(), f.getKey(), capacity);
+            segments.add(segment);
+
+            ByteBuffer buf = segment.buffer.duplicate();
+            byte[] bytes = new byte[RECORD_SIZE];
+            while (segment.contains(expected)) {
+                buf.position(segment.offset(expected));
+                buf.get(bytes);
+                if (!valid(bytes, expected)) {
+                    ended = true;
+                    break;
+                }
+                expected++;
+            }
+        }
+
+        nextSeq = expected;
+        writtenSeq = expected - 1;
+        durableSeq = expected - 1;
+    }
+
+    private boolean valid(byte[] bytes, long expectedSeq) {
+        ByteBuffer r = ByteBuffer.wrap(bytes);
+        if (r.getLong(0) != expectedSeq) return false;
+        CRC32 check = new CRC32();
+        check.update(bytes, 0, 60);
+        return r.getInt(60) == (int) check.getValue();
+    }
+
+    private void quarantine(Path file) throws IOException {
+        System.err.println("Vote journal segment after the last valid record, setting aside: " + file);
+        Files.move(file, file.resolveSibling(file.getFileName() + ".corrupt"), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path segmentPath(long firstSeq) {
+        return dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSeq, SEGMENT_SUFFIX));
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path file = dir.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) return 0;
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buf.capacity() != 12) return 0;
+        CRC32 check = new CRC32();
+        check.update(buf.array(), 0, 8);
+        return buf.getInt(8) == (int) check.getValue() ? buf.getLong(0) : 0;
+    }
+
+    /** Write-then-rename, so a crash leaves either the old or the new checkpoint */
+    private void writeCheckpoint(long seq) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(12);
+        buf.putLong(0, seq);
+        CRC32 check = new CRC32();
+        check.update(buf.array(), 0, 8);
+        buf.putInt(8, (int) check.getValue());
+
+        Path tmp = dir.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ch.write(buf);
+            ch.force(true);
+        }
+        Files.move(tmp, dir.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Whether a voter ID fits in a journal record
+     */
+    public static boolean fits(String voterId) {
+        // At most 3 UTF-8 bytes per char, so short IDs need no encoding
+        return voterId.length() * 3 <= MAX_VOTER_ID_BYTES
+                || voterId.getBytes(StandardCharsets.UTF_8).length <= MAX_VOTER_ID_BYTES;
+    }
+
+    /** 64-bit FNV-1a of the voter ID bytes at offset */
+    private static long voterHash(ByteBuffer buf, int offset, int length) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = offset; i < offset + length; i++) {
+            h ^= buf.get(i) & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,36 @@
+package models;
+
+/**
+ * Result of a vote casting attempt
+ */
+public enum VoteOutcome {
+
+    /** Vote recorded, candidate count and voter status updated */
+    ACCEPTED,
+
+    /** Voter already has a vote in this election */
+    ALREADY_VOTED,
+
+    /** Election does not exist or is not active */
+    ELECTION_CLOSED,
+
+    /** Candidate does not exist or is not approved */
+    INVALID_CANDIDATE,
+
+    /** Voter does not exist or is not approved */
+    VOTER_NOT_ELIGIBLE,
+
+    /** Database error; nothing was recorded */
+    ERROR,
+
+    /**
+     * The vote may have been recorded but could not be confirmed: it was not
+     * confirmed durable, or its commit did not finish in time. It may still be
+     * counted. The voter is treated as having voted; do not retry.
+     */
+    UNKNOWN;
+
+    public boolean isAccepted() {
+        return this == ACCEPTED;
+    }
+}
@@ -0,0 +1,30 @@
+package models;
+
+import java.sql.Timestamp;
+
+/**
+ * Read model for one row of the votes table, used by results exports and
+ * recounts. Immutable.
+ */
+public class VoteRow {
+
+    private final int voteId;
+    private final String voterId;
+    private final int candidateId;
+    private final int electionId;
+    private final Timestamp votedAt;
+
+    public VoteRow(int voteId, String voterId, int candidateId, int electionId, Timestamp votedAt) {
+        this.voteId = voteId;
+        this.voterId = voterId;
+        this.candidateId = candidateId;
+        this.electionId = electionId;
+        this.votedAt = votedAt;
+    }
+
+    public int getVoteId() { return voteId; }
+    public String getVoterId() { return voterId; }
+    public int getCandidateId() { return candidateId; }
+    public int getElectionId() { return electionId; }
+    public Timestamp getVotedAt() { return votedAt; }
+}
@@ -0,0 +1,284 @@
+package services;
+
+import dao.VoteDAO;
+import dao.VoteEvents;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory "already voted" index, one per election.
+ *
+ * Each election keeps:
+ * - an exact bitmap for voter IDs of the form "v" + numeric roll number
+ *   without leading zeros, up to a fixed capacity;
+ * - a Bloom filter over every voter ID, which answers "definitely not
+ *   voted" for the rest.
+ *
+ * Only a Bloom-filter hit on a non-numeric (or out-of-range) voter ID is
+ * uncertain and needs a database check. With the defaults an election
+ * costs about 1 MB of bitmap plus 1.2 MB of Bloom filter, sized for 1M
+ * voters at a 1% false-positive rate.
+ *
+ * The index follows every vote VoteDAO commits in this process through
+ * {@link VoteEvents}, and drops an election when its votes are deleted or
+ * rebuilt; the next lookup reloads it. A load that fails (for instance shed
+ * by admission control) is retried after a backoff that doubles from 1 s to
+ * 30 s, and lookups answer UNKNOWN meanwhile. Votes other processes write to the
+ * same database are not seen: mark the index shared and NOT_VOTED answers
+ * become UNKNOWN, leaving the database to decide.
+ */
+public class VotedIndex implements AutoCloseable {
+
+    public enum Answer {
+        VOTED,
+        NOT_VOTED,
+        UNKNOWN
+    }
+
+    private static final long MIN_RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_RETRY_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    /** When a failed lazy load of an election may be tried again. Immutable. */
+    private static final class Backoff {
+        final long retryAtNanos;
+        final long delayNanos;
+
+        Backoff(long retryAtNanos, long delayNanos) {
+            this.retryAtNanos = retryAtNanos;
+            this.delayNanos = delayNanos;
+        }
+    }
+
+    private final VoteDAO voteDAO;
+    private final int bitmapCapacity;
+    private final int expectedVoters;
+    private final double falsePositiveRate;
+    private final ConcurrentHashMap<Integer, ElectionSet> elections = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Backoff> failedLoads = new ConcurrentHashMap<>();
+    private final VoteEvents.Listener listener;
+    private volatile boolean shared;
+
+    private final LongAdder definiteAnswers = new LongAdder();
+    private final LongAdder uncertainAnswers = new LongAdder();
+
+    public VotedIndex(VoteDAO voteDAO) {
+        this(voteDAO, 1 << 23, 1_000_000, 0.01);
+    }
+
+    /**
+     * @param voteDAO DAO used to load existing votes
+     * @param bitmapCapacity highest numeric voter ID (exclusive) tracked exactly
+     * @param expectedVoters Bloom filter sizing per election
+     * @param falsePositiveRate Bloom filter target false-positive rate
+     */
+    public VotedIndex(VoteDAO voteDAO, int bitmapCapacity, int expectedVoters, double falsePositiveRate) {
+        this.voteDAO = voteDAO;
+        this.bitmapCapacity = bitmapCapacity;
+        this.expectedVoters = expectedVoters;
+        this.falsePositiveRate = falsePositiveRate;
+        this.listener = new VoteEvents.Listener() {
+            @Override
+            public void votesAccepted(int electionId, int candidateId, int votes) {
+            }
+
+            @Override
+            public void voterVoted(int electionId, String voterId) {
+                markVoted(voterId, electionId);
+            }
+
+            @Override
+            public void resultsReset(int electionId) {
+                // Listeners must not query; the next lookup reloads the election
+                elections.remove(electionId);
+            }
+        };
+        VoteEvents.addListener(listener);
+    }
+
+    /**
+     * Set when other processes accept votes into the same database. Only
+     * VOTED answers are then definite, since the index cannot see their votes.
+     */
+    public void setShared(boolean shared) {
+        this.shared = shared;
+    }
+
+    /**
+     * Stop following votes
+     */
+    @Override
+    public void close() {
+        VoteEvents.removeListener(listener);
+        elections.clear();
+    }
+
+    /**
+     * Load an election's votes from the database, replacing any existing index
+     * @param electionId Election ID
+     * @return true if the votes were loaded
+     */
+    public boolean reload(int electionId) {
+        ElectionSet set = new ElectionSet();
+        elections.put(electionId, set);
+
+        if (voteDAO.forEachVoterId(electionId, set::add)) {
+            set.loaded = true;
+            failedLoads.remove(electionId);
+            return true;
+        }
+        elections.remove(electionId, set);
+        return false;
+    }
+
+    /**
+     * Answer from memory whether a voter has voted in an election
+     * @param voterId Voter ID
+     * @param electionId Election ID
+     * @return VOTED / NOT_VOTED when certain, UNKNOWN when the database must decide
+     */
+    public Answer lookup(String voterId, int electionId) {
+        ElectionSet set = elections.get(electionId);
+        if (set == null) {
+            synchronized (this) {
+                if (!elections.containsKey(electionId) && loadDue(electionId) && !reload(electionId)) {
+                    backOff(electionId);
+                }
+            }
+            set = elections.get(electionId);
+        }
+
+        Answer answer = set == null || !set.loaded ? Answer.UNKNOWN : set.lookup(voterId);
+        if (answer == Answer.NOT_VOTED && shared) answer = Answer.UNKNOWN;
+        if (answer == Answer.UNKNOWN) uncertainAnswers.increment();
+        else definiteAnswers.increment();
+        return answer;
+    }
+
+    /**
+     * Record an accepted vote
+     * @param voterId Voter ID
+     * @param electionId Election ID
+     */
+    public void markVoted(String voterId, int electionId) {
+        ElectionSet set = elections.get(electionId);
+        if (set != null) set.add(voterId);
+    }
+
+    /**
+     * @return lookups answered without the database
+     */
+    public long getDefiniteAnswers() {
+        return definiteAnswers.sum();
+    }
+
+    /**
+     * @return lookups that needed a database check
+     */
+    public long getUncertainAnswers() {
+        return uncertainAnswers.sum();
+    }
+
+    /**
+     * Numeric form of a voter ID ("v" + digits), or -1 if it has none.
+     * Zero-padded digits ("v0123") have none, since "v123" maps to the same number.
+     */
+    static long numericId(String voterId) {
+        if (voterId == null || voterId.length() < 2 || voterId.length() > 19) return -1;
+        if (voterId.charAt(1) == '0' && voterId.length() > 2) return -1;
+        long n = 0;
+        for (int i = 1; i < voterId.length(); i++) {
+            char c = voterId.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            n = n * 10 + (c - '0');
+        }
+        return voterId.charAt(0) == 'v' ? n : -1;
+    }
+
+    /** False while a failed load of the election is backing off */
+    private boolean loadDue(int electionId) {
+        Backoff b = failedLoads.get(electionId);
+        return b == null || System.nanoTime() - b.retryAtNanos >= 0;
+    }
+
+    private void backOff(int electionId) {
+        long now = System.nanoTime();
+        failedLoads.compute(electionId, (id, b) -> {
+            long delay = b == null ? MIN_RETRY_NANOS : Math.min(b.delayNanos * 2, MAX_RETRY_NANOS);
+            return new Backoff(now + delay, delay);
+        });
+    }
+
+    /** 64-bit FNV-1a followed by a finalizer mix */
+    private static long hash64(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static boolean testBit(AtomicLongArray bits, long index) {
+        return (bits.get((int) (index >>> 6)) & (1L << index)) != 0;
+    }
+
+    private static void setBit(AtomicLongArray bits, long index) {
+        int word = (int) (index >>> 6);
+        long mask = 1L << index;
+        long current;
+        do {
+            current = bits.get(word);
+            if ((current & mask) != 0) return;
+        } while (!bits.compareAndSet(word, current, current | mask));
+    }
+
+    /** Membership set for one election */
+    private final class ElectionSet {
+        final AtomicLongArray bitmap = new AtomicLongArray((bitmapCapacity + 63) >>> 6);
+        final AtomicLongArray bloom;
+        final long bloomBits;
+        final int hashes;
+        volatile boolean loaded;
+
+        ElectionSet() {
+            double ln2 = Math.log(2);
+            long bits = (long) Math.ceil(-expectedVoters * Math.log(falsePositiveRate) / (ln2 * ln2));
+            this.bloomBits = Math.max(64, (bits + 63) & ~63L);
+            this.hashes = Math.max(1, (int) Math.round(bloomBits / (double) expectedVoters * ln2));
+            this.bloom = new AtomicLongArray((int) (bloomBits >>> 6));
+        }
+
+        void add(String voterId) {
+            long n = numericId(voterId);
+            if (n >= 0 && n < bitmapCapacity) setBit(bitmap, n);
+
+            long h = hash64(voterId);
+            int h1 = (int) h;
+            int h2 = (int) (h >>> 32);
+            for (int i = 0; i < hashes; i++) {
+                setBit(bloom, Integer.toUnsignedLong(h1 + i * h2) % bloomBits);
+            }
+        }
+
+        Answer lookup(String voterId) {
+            long n = numericId(voterId);
+            if (n >= 0 && n < bitmapCapacity) {
+                return testBit(bitmap, n) ? Answer.VOTED : Answer.NOT_VOTED;
+            }
+
+            long h = hash64(voterId);
+            int h1 = (int) h;
+            int h2 = (int) (h >>> 32);
+            for (int i = 0; i < hashes; i++) {
+                if (!testBit(bloom, Integer.toUnsignedLong(h1 + i * h2) % bloomBits)) return Answer.NOT_VOTED;
+            }
+            return Answer.UNKNOWN;
+        }
+    }
+}
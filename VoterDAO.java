@@ -1,14 +1,30 @@
 package dao;
 
+import models.ImportResult;
+import models.Page;
 import models.Voter;
+import models.VoterFilter;
+import models.VoterSummary;
+import utils.CsvReader;
 import utils.DatabaseConnection;
+import utils.JdbcStreams;
+import utils.SqlUtils;
 
+import java.io.Reader;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public class VoterDAO {
 
+    /** Columns of {@link VoterSummary}, in the order extractSummary reads them */
+    private static final String SUMMARY_COLUMNS =
+            "voter_id, roll_number, full_name, department, year_of_study, is_approved, has_voted";
+
     // ==========================================================
     //                AUTHENTICATION & VOTING
     // ==========================================================
@@ -16,9 +32,9 @@ public class VoterDAO {
     /** Authenticate voter login */
     public Voter authenticateVoter(String voterId, String password) {
 
-        String sql = "SELECT * FROM voters WHERE voter_id = ? AND password = ? AND is_approved = 1";
+        String sql = "SELECT * FROM voters WHERE voter_id = ? AND password = ? AND is_approved = TRUE";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnection("VoterDAO.authenticateVoter");
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setString(1, voterId);
@@ -37,7 +53,7 @@ public class VoterDAO {
 
         String sql = "SELECT * FROM voters WHERE voter_id = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection("VoterDAO.getVoterById", voterId);
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setString(1, voterId);
@@ -52,9 +68,9 @@ public class VoterDAO {
     /** Check if election is active (delegated to elections table) */
     public boolean isElectionActive() {
 
-        String sql = "SELECT is_active FROM elections WHERE is_active = 1 LIMIT 1";
+        String sql = "SELECT is_active FROM elections WHERE is_active = TRUE LIMIT 1";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnection("VoterDAO.isElectionActive");
              Statement st = conn.createStatement();
              ResultSet rs = st.executeQuery(sql)) {
 
@@ -70,7 +86,7 @@ public class VoterDAO {
 
         String sql = "SELECT has_voted FROM voters WHERE voter_id = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnection("VoterDAO.hasVoted");
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setString(1, voterId);
@@ -92,13 +108,15 @@ public class VoterDAO {
 
         String sql = "UPDATE voters SET has_voted = ? WHERE voter_id = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnection("VoterDAO.updateVotingStatus");
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setBoolean(1, hasVoted);
             ps.setString(2, voterId);
 
-            return ps.executeUpdate() > 0;
+            boolean updated = ps.executeUpdate() > 0;
+            if (updated) DatabaseConnection.recordWrite(voterId);
+            return updated;
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -117,7 +135,7 @@ public class VoterDAO {
         String sql = "SELECT * FROM voters";
         List<Voter> list = new ArrayList<>();
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection("VoterDAO.getAllVoters");
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
@@ -128,13 +146,25 @@ public class VoterDAO {
         return list;
     }
 
+    /** Stream *all* voters row by row; close the stream to release the connection */
+    public Stream<Voter> streamAllVoters() {
+
+        String sql = "SELECT * FROM voters";
+
+        try {
+            return JdbcStreams.stream(DatabaseConnection.getReadConnection("VoterDAO.streamAllVoters"), sql, ps -> { }, this::extractVoter);
+        } catch (Exception e) { e.printStackTrace(); }
+
+        return Stream.empty();
+    }
+
     /** Get approved voters */
     public List<Voter> getAllApprovedVoters() {
 
-        String sql = "SELECT * FROM voters WHERE is_approved = 1";
+        String sql = "SELECT * FROM voters WHERE is_approved = TRUE";
         List<Voter> list = new ArrayList<>();
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection("VoterDAO.getAllApprovedVoters");
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
@@ -148,10 +178,10 @@ public class VoterDAO {
     /** Get pending voters */
     public List<Voter> getPendingVoters() {
 
-        String sql = "SELECT * FROM voters WHERE is_approved = 0";
+        String sql = "SELECT * FROM voters WHERE is_approved = FALSE";
         List<Voter> list = new ArrayList<>();
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnection("VoterDAO.getPendingVoters");
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
@@ -162,6 +192,72 @@ public class VoterDAO {
         return list;
     }
 
+    /**
+     * Voter list rows matching the filter, ordered by voter_id.
+     * Reads only the listed columns; use getVoterById for the full record.
+     */
+    public List<VoterSummary> getVoterSummaries(VoterFilter filter) {
+
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT " + SUMMARY_COLUMNS + " FROM voters" + filterClause(filter, params) + " ORDER BY voter_id";
+        List<VoterSummary> list = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnection.getReadConnection("VoterDAO.getVoterSummaries");
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            int i = 1;
+            for (Object p : params) ps.setObject(i++, p);
+
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) list.add(extractSummary(rs));
+
+        } catch (Exception e) { e.printStackTrace(); }
+
+        return list;
+    }
+
+    /**
+     * One page of voter list rows ordered by voter_id (keyset pagination).
+     * Pass null as the cursor for the first page, then the page's nextCursor.
+     * @throws IllegalArgumentException if pageSize is not positive
+     */
+    public Page<VoterSummary> getVotersPage(VoterFilter filter, String cursor, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Invalid page size: " + pageSize);
+        }
+
+        List<Object> params = new ArrayList<>();
+        String where = filterClause(filter, params);
+
+        String key = "voters|" + (filter == null ? "" : filter.key());
+        long total = CountEstimates.get(key, "SELECT COUNT(*) FROM voters" + where, params);
+
+        String sql = "SELECT " + SUMMARY_COLUMNS + " FROM voters" + where
+                + (cursor != null ? " AND voter_id > ?" : "")
+                + " ORDER BY voter_id LIMIT ?";
+        List<VoterSummary> list = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnection.getReadConnection("VoterDAO.getVotersPage");
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            int i = 1;
+            for (Object p : params) ps.setObject(i++, p);
+            if (cursor != null) ps.setString(i++, cursor);
+            ps.setInt(i, pageSize + 1);
+
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) list.add(extractSummary(rs));
+
+        } catch (Exception e) { e.printStackTrace(); }
+
+        String next = null;
+        if (list.size() > pageSize) {
+            list.remove(pageSize);
+            next = list.get(pageSize - 1).getVoterId();
+        }
+        return new Page<>(list, next, total);
+    }
+
     // ==========================================================
     //                        CRUD OPERATIONS
     // ==========================================================
@@ -171,7 +267,7 @@ public class VoterDAO {
 
         String sql = "SELECT roll_number FROM voters WHERE roll_number = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnection("VoterDAO.voterExists");
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setString(1, rollNumber);
@@ -188,9 +284,9 @@ public class VoterDAO {
     public boolean registerVoter(Voter v) {
 
         String sql = "INSERT INTO voters (voter_id, roll_number, full_name, department, year_of_study, email, password, is_approved, has_voted) "
-                + "VALUES (?, ?, ?, ?, ?, ?, ?, 0, 0)";
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, FALSE, FALSE)";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnection("VoterDAO.registerVoter");
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             String voterId = "v" + v.getRollNumber();
@@ -210,13 +306,186 @@ public class VoterDAO {
         return false;
     }
 
+    // ==========================================================
+    //                        BULK IMPORT
+    // ==========================================================
+
+    private static final int IMPORT_CHUNK_SIZE = 500;
+
+    private static final String[] CSV_COLUMNS =
+            {"roll_number", "full_name", "department", "year_of_study", "email", "password"};
+
+    /**
+     * Bulk import voters from CSV, read as a stream.
+     * Expects a header row: roll_number,full_name,department,year_of_study,email,password
+     * (names compared case-insensitively). Blank lines are skipped.
+     */
+    public ImportResult importVotersCsv(Reader reader) {
+
+        ImportResult result = new ImportResult();
+
+        try (CsvReader csv = new CsvReader(reader);
+             VoterImport importer = new VoterImport(result)) {
+
+            List<String> header = csv.next();
+            if (header == null) return result;
+            if (!isCsvHeader(header)) {
+                result.reject(0, null, "Expected header " + String.join(",", CSV_COLUMNS));
+                return result;
+            }
+
+            long row = 0;
+            List<String> f;
+            while ((f = csv.next()) != null) {
+                row++;
+                if (f.size() == 1 && f.get(0).trim().isEmpty()) continue;
+                if (f.size() != CSV_COLUMNS.length) {
+                    result.reject(row, f.isEmpty() ? null : f.get(0),
+                            "Expected " + CSV_COLUMNS.length + " columns, found " + f.size());
+                    continue;
+                }
+                Voter v = new Voter();
+                v.setRollNumber(f.get(0).trim());
+                v.setFullName(f.get(1).trim());
+                v.setDepartment(f.get(2).trim());
+                v.setYearOfStudy(f.get(3).trim());
+                v.setEmail(f.get(4).trim());
+                v.setPassword(f.get(5));
+                importer.add(row, v);
+            }
+
+        } catch (Exception e) { e.printStackTrace(); }
+
+        return result;
+    }
+
+    private static boolean isCsvHeader(List<String> header) {
+        if (header.size() != CSV_COLUMNS.length) return false;
+        for (int i = 0; i < CSV_COLUMNS.length; i++) {
+            String name = header.get(i).trim();
+            if (i == 0 && name.startsWith("\uFEFF")) name = name.substring(1);
+            if (!name.equalsIgnoreCase(CSV_COLUMNS[i])) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Bulk import voters. Duplicate roll numbers are found with one query per
+     * chunk and the rest are inserted with JDBC batches, one transaction per chunk.
+     */
+    public ImportResult importVoters(Iterable<Voter> voters) {
+
+        ImportResult result = new ImportResult();
+
+        try (VoterImport importer = new VoterImport(result)) {
+
+            long row = 0;
+            for (Voter v : voters) importer.add(++row, v);
+
+        } catch (Exception e) { e.printStackTrace(); }
+
+        return result;
+    }
+
+    /** Buffers rows into chunks and writes each chunk in its own transaction */
+    private static final class VoterImport implements AutoCloseable {
+
+        private final ImportResult result;
+        private final Set<String> seen = new HashSet<>();
+        private final List<Voter> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        private final List<Long> rows = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        private final Connection conn;
+
+        VoterImport(ImportResult result) throws SQLException {
+            this.result = result;
+            this.conn = DatabaseConnection.getConnection("VoterDAO.importVoters");
+            this.conn.setAutoCommit(false);
+        }
+
+        void add(long row, Voter v) throws SQLException {
+            String roll = v.getRollNumber();
+            if (roll == null || roll.isEmpty()) {
+                result.reject(row, roll, "Missing roll number");
+                return;
+            }
+            if (!seen.add(roll)) {
+                result.reject(row, roll, "Duplicate roll number in import");
+                return;
+            }
+            chunk.add(v);
+            rows.add(row);
+            if (chunk.size() == IMPORT_CHUNK_SIZE) flush();
+        }
+
+        void flush() throws SQLException {
+            if (chunk.isEmpty()) return;
+
+            Set<String> existing = new HashSet<>();
+            String existsSql = "SELECT roll_number FROM voters WHERE roll_number IN ("
+                    + SqlUtils.placeholders(chunk.size()) + ")";
+
+            try (PreparedStatement ps = conn.prepareStatement(existsSql)) {
+                for (int i = 0; i < chunk.size(); i++) ps.setString(i + 1, chunk.get(i).getRollNumber());
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) existing.add(rs.getString(1));
+            }
+
+            String insertSql = "INSERT INTO voters (voter_id, roll_number, full_name, department, year_of_study, email, password, is_approved, has_voted) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, FALSE, FALSE)";
+            String failure = null;
+
+            try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
+                boolean any = false;
+                for (Voter v : chunk) {
+                    if (existing.contains(v.getRollNumber())) continue;
+
+                    ps.setString(1, "v" + v.getRollNumber());
+                    ps.setString(2, v.getRollNumber());
+                    ps.setString(3, v.getFullName());
+                    ps.setString(4, v.getDepartment());
+                    ps.setString(5, v.getYearOfStudy());
+                    ps.setString(6, v.getEmail());
+                    ps.setString(7, v.getPassword());
+                    ps.addBatch();
+                    any = true;
+                }
+                if (any) ps.executeBatch();
+                conn.commit();
+
+            } catch (SQLException e) {
+                conn.rollback();
+                failure = "Insert failed: " + e.getMessage();
+            }
+
+            for (int i = 0; i < chunk.size(); i++) {
+                String roll = chunk.get(i).getRollNumber();
+                if (existing.contains(roll)) result.reject(rows.get(i), roll, "Roll number already registered");
+                else if (failure != null) result.reject(rows.get(i), roll, failure);
+                else result.accept(rows.get(i), roll);
+            }
+
+            chunk.clear();
+            rows.clear();
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                flush();
+            } finally {
+                conn.close();
+                CountEstimates.invalidate("voters");
+            }
+        }
+    }
+
     /** Update voter */
     public boolean updateVoter(Voter v) {
 
         String sql = "UPDATE voters SET full_name=?, department=?, year_of_study=?, email=?, password=?, is_approved=?, has_voted=? "
                 + "WHERE voter_id=?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnection("VoterDAO.updateVoter");
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setString(1, v.getFullName());
@@ -228,7 +497,9 @@ public class VoterDAO {
             ps.setBoolean(7, v.hasVoted());
             ps.setString(8, v.getVoterId());
 
-            return ps.executeUpdate() > 0;
+            boolean updated = ps.executeUpdate() > 0;
+            if (updated) DatabaseConnection.recordWrite(v.getVoterId());
+            return updated;
 
         } catch (Exception e) { e.printStackTrace(); }
 
@@ -242,13 +513,15 @@ public class VoterDAO {
     /** Approve a voter */
     public boolean approveVoter(String voterId) {
 
-        String sql = "UPDATE voters SET is_approved = 1 WHERE voter_id = ?";
+        String sql = "UPDATE voters SET is_approved = TRUE WHERE voter_id = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnection("VoterDAO.approveVoter");
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setString(1, voterId);
-            return ps.executeUpdate() > 0;
+            boolean updated = ps.executeUpdate() > 0;
+            if (updated) DatabaseConnection.recordWrite(voterId);
+            return updated;
 
         } catch (Exception e) { e.printStackTrace(); }
 
@@ -260,7 +533,7 @@ public class VoterDAO {
 
         String sql = "DELETE FROM voters WHERE voter_id = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnection("VoterDAO.deleteVoter");
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setString(1, voterId);
@@ -271,12 +544,93 @@ public class VoterDAO {
         return false;
     }
 
+    // ==========================================================
+    //                    BULK APPROVE / REJECT
+    // ==========================================================
+
+    /** Approve many pending voters in one transaction; returns the IDs that were approved */
+    public List<String> approveVoters(Collection<String> voterIds) {
+
+        List<String> approved = new ArrayList<>();
+
+        try {
+            approved = BulkStatements.apply(voterIds,
+                    "SELECT voter_id FROM voters WHERE voter_id IN (%s) AND is_approved = FALSE FOR UPDATE",
+                    "UPDATE voters SET is_approved = TRUE WHERE voter_id IN (%s)",
+                    rs -> rs.getString(1));
+        } catch (Exception e) { e.printStackTrace(); }
+
+        if (!approved.isEmpty()) CountEstimates.invalidate("voters");
+        return approved;
+    }
+
+    /** Approve every pending voter matching the filter (e.g. one department); returns the IDs approved */
+    public List<String> approvePendingVoters(VoterFilter filter) {
+
+        VoterFilter pending = new VoterFilter(
+                filter == null ? null : filter.getDepartment(),
+                filter == null ? null : filter.getYearOfStudy(),
+                false);
+
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT voter_id FROM voters" + filterClause(pending, params);
+        List<String> ids = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnection.getConnection("VoterDAO.approvePendingVoters");
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            for (int i = 0; i < params.size(); i++) ps.setObject(i + 1, params.get(i));
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) ids.add(rs.getString(1));
+
+        } catch (Exception e) { e.printStackTrace(); }
+
+        return approveVoters(ids);
+    }
+
+    /** Delete / Reject many voters in one transaction; returns the IDs that were deleted */
+    public List<String> deleteVoters(Collection<String> voterIds) {
+
+        List<String> deleted = new ArrayList<>();
+
+        try {
+            deleted = BulkStatements.apply(voterIds,
+                    "SELECT voter_id FROM voters WHERE voter_id IN (%s) FOR UPDATE",
+                    "DELETE FROM voters WHERE voter_id IN (%s)",
+                    rs -> rs.getString(1));
+        } catch (Exception e) { e.printStackTrace(); }
+
+        if (!deleted.isEmpty()) CountEstimates.invalidate("voters");
+        return deleted;
+    }
+
     // ==========================================================
     //                      HELPER MAPPER
     // ==========================================================
 
+    /** Build a WHERE clause for the filter, appending its values to params */
+    private String filterClause(VoterFilter filter, List<Object> params) {
+
+        StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+        if (filter == null) return where.toString();
+
+        if (filter.getDepartment() != null) {
+            where.append(" AND department = ?");
+            params.add(filter.getDepartment());
+        }
+        if (filter.getYearOfStudy() != null) {
+            where.append(" AND year_of_study = ?");
+            params.add(filter.getYearOfStudy());
+        }
+        if (filter.getApproved() != null) {
+            where.append(" AND is_approved = ?");
+            params.add(filter.getApproved());
+        }
+        return where.toString();
+    }
+
     /** Map DB row → Voter model */
-    private Voter extractVoter(ResultSet rs) throws Exception {
+    private Voter extractVoter(ResultSet rs) throws SQLException {
 
         Voter v = new Voter();
         v.setVoterId(rs.getString("voter_id"));
@@ -286,9 +640,15 @@ public class VoterDAO {
         v.setYearOfStudy(rs.getString("year_of_study"));
         v.setEmail(rs.getString("email"));
         v.setPassword(rs.getString("password"));
-        v.setApproved(rs.getInt("is_approved") == 1);
+        v.setApproved(rs.getBoolean("is_approved"));
         v.setHasVoted(rs.getBoolean("has_voted"));
 
         return v;
     }
+
+    /** Map a row selected with SUMMARY_COLUMNS, by column index */
+    private VoterSummary extractSummary(ResultSet rs) throws SQLException {
+        return new VoterSummary(rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                rs.getString(5), rs.getBoolean(6), rs.getBoolean(7));
+    }
 }
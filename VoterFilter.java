@@ -0,0 +1,34 @@
+package models;
+
+/**
+ * Optional filters for admin voter listings; null fields are ignored
+ */
+public class VoterFilter {
+
+    private String department;
+    private String yearOfStudy;
+    private Boolean approved;
+
+    public VoterFilter() {
+    }
+
+    public VoterFilter(String department, String yearOfStudy, Boolean approved) {
+        this.department = department;
+        this.yearOfStudy = yearOfStudy;
+        this.approved = approved;
+    }
+
+    public String getDepartment() { return department; }
+    public void setDepartment(String department) { this.department = department; }
+
+    public String getYearOfStudy() { return yearOfStudy; }
+    public void setYearOfStudy(String yearOfStudy) { this.yearOfStudy = yearOfStudy; }
+
+    public Boolean getApproved() { return approved; }
+    public void setApproved(Boolean approved) { this.approved = approved; }
+
+    /** Stable key identifying this filter combination */
+    public String key() {
+        return department + "|" + yearOfStudy + "|" + approved;
+    }
+}
@@ -0,0 +1,35 @@
+package models;
+
+/**
+ * Read model for voter listings: the columns a list row shows, without the
+ * password and email. Immutable.
+ */
+public class VoterSummary {
+
+    private final String voterId;
+    private final String rollNumber;
+    private final String fullName;
+    private final String department;
+    private final String yearOfStudy;
+    private final boolean approved;
+    private final boolean hasVoted;
+
+    public VoterSummary(String voterId, String rollNumber, String fullName, String department,
+                        String yearOfStudy, boolean approved, boolean hasVoted) {
+        this.voterId = voterId;
+        this.rollNumber = rollNumber;
+        this.fullName = fullName;
+        this.department = department;
+        this.yearOfStudy = yearOfStudy;
+        this.approved = approved;
+        this.hasVoted = hasVoted;
+    }
+
+    public String getVoterId() { return voterId; }
+    public String getRollNumber() { return rollNumber; }
+    public String getFullName() { return fullName; }
+    public String getDepartment() { return department; }
+    public String getYearOfStudy() { return yearOfStudy; }
+    public boolean isApproved() { return approved; }
+    public boolean hasVoted() { return hasVoted; }
+}
@@ -0,0 +1,230 @@
+package services;
+
+import dao.CachedCandidateDAO;
+import dao.CandidateDAO;
+import dao.VoteDAO;
+import models.Candidate;
+import models.Vote;
+import models.VoteOutcome;
+import utils.DatabaseConnection;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Entry point for the voting path.
+ * Wraps the DAO calls a ballot submission needs so callers no longer have
+ * to check hasVoted, insert the vote and flip has_voted themselves.
+ */
+public class VotingService {
+
+    private final VoteDAO voteDAO;
+    private final CandidateDAO candidateDAO = new CachedCandidateDAO();
+    private volatile VoteCounterEngine counterEngine;
+    private volatile VotedIndex votedIndex;
+    private volatile ElectionStateService electionState;
+    private volatile VoteJournal journal;
+
+    /** "electionId:voterId" -> journal sequence of votes not yet known to be in the database */
+    private final ConcurrentHashMap<String, Long> journalClaims = new ConcurrentHashMap<>();
+
+    public VotingService() {
+        this(new VoteDAO());
+    }
+
+    public VotingService(VoteDAO voteDAO) {
+        this.voteDAO = voteDAO;
+    }
+
+    /**
+     * Route candidate vote counts through in-memory counters instead of
+     * updating candidates.vote_count inside every vote transaction
+     * @param counterEngine started counter engine, or null to update the row per vote
+     */
+    public void setCounterEngine(VoteCounterEngine counterEngine) {
+        this.counterEngine = counterEngine;
+    }
+
+    /**
+     * Answer hasVoted checks from an in-memory index, falling back to the
+     * database only when the index is uncertain
+     * @param votedIndex index, or null to always query the database
+     */
+    public void setVotedIndex(VotedIndex votedIndex) {
+        this.votedIndex = votedIndex;
+    }
+
+    /**
+     * Check if voter has already voted in an election
+     * @param voterId Voter ID
+     * @param electionId Election ID
+     * @return true if voter has voted, false otherwise
+     */
+    public boolean hasVoted(String voterId, int electionId) {
+        if (journal != null && journalClaims.containsKey(electionId + ":" + voterId)) {
+            return true;
+        }
+        VotedIndex index = votedIndex;
+        if (index != null) {
+            VotedIndex.Answer answer = index.lookup(voterId, electionId);
+            if (answer != VotedIndex.Answer.UNKNOWN) {
+                return answer == VotedIndex.Answer.VOTED;
+            }
+        }
+        return voteDAO.hasVoted(voterId, electionId);
+    }
+
+    /**
+     * Acknowledge votes once they are durable in the vote journal instead of
+     * after a database commit; the journal's applier writes them to the
+     * database in batches. On this path the election and candidate are checked
+     * in memory and the voter against the voters table before the append.
+     * If a counter engine is set, replay the journal's pending records before
+     * starting the engine (its start reconciles vote_count from the votes
+     * table) and start the applier without vote_count updates.
+     * @param journal open journal with its applier started, or null to write to the database directly
+     */
+    public void setJournal(VoteJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Use a specific election state holder instead of the shared instance
+     * @param electionState election state
+     */
+    public void setElectionState(ElectionStateService electionState) {
+        this.electionState = electionState;
+    }
+
+    /**
+     * Cast a vote in the election that is currently open
+     * @param voterId Voter ID
+     * @param candidateId Candidate ID
+     * @return Outcome of the attempt; ELECTION_CLOSED if no election is open
+     */
+    public VoteOutcome castVote(String voterId, int candidateId) {
+        int electionId = electionState().getOpenElectionId();
+        if (electionId < 0) {
+            return VoteOutcome.ELECTION_CLOSED;
+        }
+        return castVote(voterId, candidateId, electionId);
+    }
+
+    /**
+     * Check if voter has already voted in the election that is currently open
+     * @param voterId Voter ID
+     * @return true if voter has voted, false otherwise (or if no election is open)
+     */
+    public boolean hasVoted(String voterId) {
+        int electionId = electionState().getOpenElectionId();
+        return electionId >= 0 && hasVoted(voterId, electionId);
+    }
+
+    /**
+     * Cast a vote in one transaction
+     * @param voterId Voter ID
+     * @param candidateId Candidate ID
+     * @param electionId Election ID
+     * @return Outcome of the attempt
+     */
+    public VoteOutcome castVote(String voterId, int candidateId, int electionId) {
+        Vote vote = new Vote();
+        vote.setVoterId(voterId);
+        vote.setCandidateId(candidateId);
+        vote.setElectionId(electionId);
+        return castVote(vote);
+    }
+
+    /**
+     * Cast a vote in one transaction
+     * @param vote Vote object; voteId is set when accepted
+     * @return Outcome of the attempt
+     */
+    public VoteOutcome castVote(Vote vote) {
+        VoteCounterEngine counters = counterEngine;
+        VoteJournal j = journal;
+        // A voter ID too long for a journal record (multi-byte characters) takes the direct path
+        VoteOutcome outcome = j != null && VoteJournal.fits(vote.getVoterId())
+                ? castVoteJournaled(j, vote)
+                : voteDAO.castVoteAtomic(vote, counters == null);
+
+        if (outcome.isAccepted() && counters != null) {
+            counters.increment(vote.getCandidateId());
+        }
+
+        VotedIndex index = votedIndex;
+        if (index != null && (outcome.isAccepted() || outcome == VoteOutcome.ALREADY_VOTED)) {
+            index.markVoted(vote.getVoterId(), vote.getElectionId());
+        }
+        return outcome;
+    }
+
+    /**
+     * Journal path: check the voter is approved, claim the (election, voter)
+     * pair in memory so concurrent attempts by the same voter lose, check the
+     * database for an earlier vote, then append the vote and wait for its fsync
+     */
+    private VoteOutcome castVoteJournaled(VoteJournal j, Vote vote) {
+        if (electionState().getOpenElectionId() != vote.getElectionId()) {
+            return VoteOutcome.ELECTION_CLOSED;
+        }
+        Candidate candidate = candidateDAO.getCandidateById(vote.getCandidateId());
+        if (candidate == null || !candidate.isApproved()) {
+            return VoteOutcome.INVALID_CANDIDATE;
+        }
+        // applyVotes does not re-check the voter, so this is the only eligibility check
+        if (!voteDAO.isVoterEligible(vote.getVoterId())) {
+            return VoteOutcome.VOTER_NOT_ELIGIBLE;
+        }
+
+        String key = vote.getElectionId() + ":" + vote.getVoterId();
+        if (journalClaims.putIfAbsent(key, Long.MAX_VALUE) != null) {
+            return VoteOutcome.ALREADY_VOTED;
+        }
+        VotedIndex index = votedIndex;
+        VotedIndex.Answer known = index != null ? index.lookup(vote.getVoterId(), vote.getElectionId()) : VotedIndex.Answer.UNKNOWN;
+        if (known == VotedIndex.Answer.VOTED
+                || (known == VotedIndex.Answer.UNKNOWN && voteDAO.hasVoted(vote.getVoterId(), vote.getElectionId()))) {
+            journalClaims.remove(key);
+            return VoteOutcome.ALREADY_VOTED;
+        }
+
+        long seq;
+        try {
+            seq = j.append(vote);
+        } catch (IOException | RuntimeException e) {
+            journalClaims.remove(key);
+            System.err.println("Error journaling vote: " + e.getMessage());
+            return VoteOutcome.ERROR;
+        }
+        journalClaims.put(key, seq);
+
+        // The record is in the journal now and may still be applied, so the
+        // claim stays and the outcome is unknown rather than an error. The
+        // counter engine does not count it; the applier adds it to vote_count.
+        try {
+            j.awaitDurable(seq);
+        } catch (IOException e) {
+            System.err.println("Error syncing vote journal: " + e.getMessage());
+            j.markUncounted(seq);
+            return VoteOutcome.UNKNOWN;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            j.markUncounted(seq);
+            return VoteOutcome.UNKNOWN;
+        }
+
+        // Claims only need to bridge the gap until the applier has written the vote
+        if ((seq & 4095) == 0) {
+            long applied = j.getAppliedSeq();
+            journalClaims.values().removeIf(s -> s <= applied);
+        }
+        DatabaseConnection.recordWrite(vote.getVoterId());
+        return VoteOutcome.ACCEPTED;
+    }
+
+    private ElectionStateService electionState() {
+        ElectionStateService state = electionState;
+        return state != null ? state : ElectionStateService.getInstance();
+    }
+}
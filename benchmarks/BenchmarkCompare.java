@@ -0,0 +1,73 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares two JMH JSON result files and reports the change per benchmark.
+ * Exits with status 1 if any throughput benchmark dropped by more than the
+ * threshold, so it can gate a CI job.
+ *
+ * Usage: BenchmarkCompare baseline.json current.json [thresholdPercent]
+ */
+public class BenchmarkCompare {
+
+    private static final Pattern BENCHMARK = Pattern.compile("\"benchmark\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern THREADS = Pattern.compile("\"threads\"\\s*:\\s*(\\d+)");
+    private static final Pattern PARAMS = Pattern.compile("\"params\"\\s*:\\s*\\{([^}]*)}");
+    private static final Pattern SCORE = Pattern.compile("\"primaryMetric\"\\s*:\\s*\\{\\s*\"score\"\\s*:\\s*([-0-9.Ee]+|\"NaN\")");
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkCompare baseline.json current.json [thresholdPercent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+
+        Map<String, Double> baseline = read(args[0]);
+        Map<String, Double> current = read(args[1]);
+        boolean regressed = false;
+
+        for (Map.Entry<String, Double> e : current.entrySet()) {
+            Double before = baseline.get(e.getKey());
+            if (before == null || before == 0) {
+                System.out.printf("%-90s %14.1f  (new)%n", e.getKey(), e.getValue());
+                continue;
+            }
+            double change = (e.getValue() - before) / before * 100;
+            boolean bad = change < -threshold;
+            regressed |= bad;
+            System.out.printf("%-90s %14.1f -> %14.1f  %+6.1f%%%s%n",
+                    e.getKey(), before, e.getValue(), change, bad ? "  REGRESSION" : "");
+        }
+
+        System.exit(regressed ? 1 : 0);
+    }
+
+    /** Benchmark key (name, threads, params) -> primary score */
+    private static Map<String, Double> read(String file) throws IOException {
+        String json = new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8);
+        Map<String, Double> scores = new LinkedHashMap<>();
+
+        // Each result object starts with its "jmhVersion" field
+        for (String entry : json.split("\"jmhVersion\"")) {
+            Matcher name = BENCHMARK.matcher(entry);
+            Matcher score = SCORE.matcher(entry);
+            if (!name.find() || !score.find() || score.group(1).startsWith("\"")) continue;
+
+            Matcher threads = THREADS.matcher(entry);
+            Matcher params = PARAMS.matcher(entry);
+            String key = name.group(1)
+                    + " t=" + (threads.find() ? threads.group(1) : "?")
+                    + (params.find() ? " " + params.group(1).replaceAll("\\s+", "") : "");
+            scores.put(key, Double.parseDouble(score.group(1)));
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,41 @@
+package bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Runs the benchmarks once per thread count and writes one JMH JSON result
+ * file per run, named after the thread count so runs can be compared with
+ * {@link BenchmarkCompare}.
+ *
+ * Usage: BenchmarkRunner [outputDir] [threadCounts] [includeRegex]
+ * Defaults: bench-results 1,16,256 "bench\..*"
+ * From Maven: mvn -B -f benchmarks/pom.xml package exec:exec@run, then
+ * exec:exec@compare to check the results against a baseline.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String outputDir = args.length > 0 ? args[0] : "bench-results";
+        String threadCounts = args.length > 1 ? args[1] : "1,16,256";
+        String include = args.length > 2 ? args[2] : "bench\\..*";
+
+        new File(outputDir).mkdirs();
+
+        for (String t : threadCounts.split(",")) {
+            int threads = Integer.parseInt(t.trim());
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(outputDir, "results-t" + threads + ".json").getPath())
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package bench;
+
+import dao.CachedCandidateDAO;
+import dao.CandidateDAO;
+import dao.VoteDAO;
+import dao.VoterDAO;
+import models.Candidate;
+import models.CandidateBallotEntry;
+import models.Vote;
+import models.VoteOutcome;
+import models.Voter;
+import org.openjdk.jmh.annotations.*;
+import utils.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DAO hot paths against an embedded, seeded database.
+ *
+ * Write benchmarks vote with fresh (voter, election) pairs so every call
+ * takes the success path; the votes are removed after each iteration.
+ * Thread count comes from the runner (-t), see {@link BenchmarkRunner}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class DaoBenchmarks {
+
+    /** Write benchmarks use elections from this ID upwards */
+    private static final int FIRST_WRITE_ELECTION = 2;
+
+    @Param("50000")
+    public int voters;
+
+    @Param("20")
+    public int candidates;
+
+    @Param("0.3")
+    public double votedFraction;
+
+    @Param("100")
+    public int writeElections;
+
+    @Param("64")
+    public int poolSize;
+
+    private final VoteDAO voteDAO = new VoteDAO();
+    private final VoterDAO voterDAO = new VoterDAO();
+    private final CandidateDAO candidateDAO = new CandidateDAO();
+    private final CandidateDAO cachedCandidateDAO = new CachedCandidateDAO();
+    private final AtomicInteger nextBallot = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        EmbeddedDatabase db = new EmbeddedDatabase("bench-dao", 42);
+        db.install(poolSize);
+        db.createAndSeed(voters, candidates, votedFraction);
+        db.createElections(FIRST_WRITE_ELECTION, writeElections);
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeBenchmarkVotes() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement st = conn.createStatement()) {
+            st.executeUpdate("DELETE FROM votes WHERE election_id >= " + FIRST_WRITE_ELECTION);
+            st.executeUpdate("DELETE FROM election_results WHERE election_id >= " + FIRST_WRITE_ELECTION);
+        }
+        nextBallot.set(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DatabaseConnection.shutdown();
+    }
+
+    @Benchmark
+    public boolean castVote() {
+        return voteDAO.castVote(nextVote());
+    }
+
+    @Benchmark
+    public VoteOutcome castVoteAtomic() {
+        return voteDAO.castVoteAtomic(nextVote());
+    }
+
+    @Benchmark
+    public boolean hasVoted() {
+        return voteDAO.hasVoted(EmbeddedDatabase.voterId(randomVoter()), EmbeddedDatabase.ELECTION_ID);
+    }
+
+    @Benchmark
+    public int getTotalVotes() {
+        return voteDAO.getTotalVotes(EmbeddedDatabase.ELECTION_ID);
+    }
+
+    @Benchmark
+    public Voter authenticateVoter() {
+        int i = randomVoter();
+        return voterDAO.authenticateVoter(EmbeddedDatabase.voterId(i), EmbeddedDatabase.password(i));
+    }
+
+    @Benchmark
+    public List<Candidate> getApprovedCandidates() {
+        return candidateDAO.getApprovedCandidates();
+    }
+
+    @Benchmark
+    public List<Candidate> getApprovedCandidatesCached() {
+        return cachedCandidateDAO.getApprovedCandidates();
+    }
+
+    @Benchmark
+    public List<CandidateBallotEntry> getBallot() {
+        return candidateDAO.getBallot();
+    }
+
+    /** A vote for a (voter, election) pair not used since the last iteration */
+    private Vote nextVote() {
+        int k = nextBallot.getAndIncrement();
+        Vote vote = new Vote();
+        vote.setVoterId(EmbeddedDatabase.voterId(k % voters));
+        vote.setElectionId(FIRST_WRITE_ELECTION + (k / voters) % writeElections);
+        vote.setCandidateId(1 + k % candidates);
+        return vote;
+    }
+
+    private int randomVoter() {
+        return ThreadLocalRandom.current().nextInt(voters);
+    }
+}
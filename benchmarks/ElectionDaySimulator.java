@@ -0,0 +1,418 @@
+package bench;
+
+import dao.CachedCandidateDAO;
+import dao.CandidateDAO;
+import dao.ElectionDAO;
+import dao.VoteDAO;
+import dao.VoterDAO;
+import models.CandidateBallotEntry;
+import models.VoteOutcome;
+import models.Voter;
+import services.ElectionStateService;
+import services.Leaderboard;
+import services.ResultsFeed;
+import services.VoteCounterEngine;
+import services.VoteJournal;
+import services.VotedIndex;
+import services.VotingService;
+import utils.AdmissionController;
+import utils.CancellationScope;
+import utils.DaoMetrics;
+import utils.DatabaseConnection;
+import utils.LatencyHistogram;
+import utils.VirtualThreads;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a poll-opening surge against an embedded database.
+ *
+ * Each simulated voter runs on its own virtual thread (platform threads
+ * before Java 21) and goes through login, ballot, hasVoted and castVote with
+ * exponentially distributed think times between steps. Arrivals ramp up
+ * linearly over sim.rampSeconds, so the arrival rate peaks at the end of the
+ * ramp. A small share of voters mistype their password or try to vote twice.
+ * Optionally, sim.adminReaders threads export the election's votes in a loop
+ * for the whole run, to show admission control keeping voters ahead of them.
+ *
+ * At the end it prints throughput, per-step latency percentiles, an outcome
+ * breakdown, the DAO metrics table and a tally-consistency check of votes
+ * rows vs candidates.vote_count vs voters.has_voted vs election_results vs
+ * the live results feed.
+ * Exits with status 1 if the tallies disagree.
+ *
+ * Settings (system properties): sim.voters (100000), sim.candidates (20),
+ * sim.rampSeconds (30), sim.thinkMillis (500), sim.poolSize (64),
+ * sim.badPasswordRate (0.01), sim.doubleVoteRate (0.02),
+ * sim.counterEngine (false), sim.votedIndex (false), sim.adminReaders (0), sim.seed (42),
+ * sim.journalDir (unset; set it to acknowledge votes from the vote journal)
+ */
+public class ElectionDaySimulator {
+
+    private static final String[] STEPS = {"login", "ballot", "hasVoted", "castVote", "session"};
+
+    private final int voters = Integer.getInteger("sim.voters", 100_000);
+    private final int candidates = Integer.getInteger("sim.candidates", 20);
+    private final long rampMillis = TimeUnit.SECONDS.toMillis(Long.getLong("sim.rampSeconds", 30L));
+    private final long thinkMillis = Long.getLong("sim.thinkMillis", 500L);
+    private final int poolSize = Integer.getInteger("sim.poolSize", 64);
+    private final double badPasswordRate = Double.parseDouble(System.getProperty("sim.badPasswordRate", "0.01"));
+    private final double doubleVoteRate = Double.parseDouble(System.getProperty("sim.doubleVoteRate", "0.02"));
+    private final boolean useCounterEngine = Boolean.getBoolean("sim.counterEngine");
+    private final boolean useVotedIndex = Boolean.getBoolean("sim.votedIndex");
+    private final long seed = Long.getLong("sim.seed", 42L);
+    private final String journalDir = System.getProperty("sim.journalDir");
+    private final int adminReaders = Integer.getInteger("sim.adminReaders", 0);
+
+    private final Map<String, LatencyHistogram> latency = new TreeMap<>();
+    private final ConcurrentHashMap<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private volatile boolean exporting = true;
+    private final LongAdder finishedSessions = new LongAdder();
+    private final LongAdder acceptedVotes = new LongAdder();
+
+    private VoterDAO voterDAO;
+    private CandidateDAO candidateDAO;
+    private VotingService votingService;
+    private ResultsFeed resultsFeed;
+    private Leaderboard leaderboard;
+
+    public static void main(String[] args) throws Exception {
+        System.exit(new ElectionDaySimulator().run() ? 0 : 1);
+    }
+
+    /**
+     * Seed, run the surge and check the tallies
+     * @return true if the final tallies are consistent
+     */
+    public boolean run() throws SQLException, InterruptedException, IOException {
+        for (String step : STEPS) {
+            latency.put(step, new LatencyHistogram());
+        }
+
+        EmbeddedDatabase db = new EmbeddedDatabase("election-day", seed);
+        db.install(poolSize);
+        System.out.printf("Seeding %d voters and %d candidates...%n", voters, candidates);
+        db.createAndSeed(voters, candidates, 0);
+        DaoMetrics.reset();
+
+        VoteDAO voteDAO = new VoteDAO();
+        voterDAO = new VoterDAO();
+        candidateDAO = new CachedCandidateDAO();
+        votingService = new VotingService(voteDAO);
+
+        ElectionStateService electionState = new ElectionStateService(new ElectionDAO(), 5_000);
+        votingService.setElectionState(electionState);
+
+        // Votes left in the journal by a crash go in before the counter engine
+        // reconciles vote_count from the votes table, so they are counted
+        VoteJournal journal = null;
+        if (journalDir != null) {
+            journal = new VoteJournal(Paths.get(journalDir));
+            journal.replayPending(voteDAO, true, 500);
+        }
+
+        VoteCounterEngine counterEngine = null;
+        if (useCounterEngine) {
+            counterEngine = new VoteCounterEngine(new CandidateDAO(), 1_000, 10_000);
+            counterEngine.start();
+            votingService.setCounterEngine(counterEngine);
+        }
+        if (useVotedIndex) {
+            VotedIndex index = new VotedIndex(voteDAO);
+            index.reload(EmbeddedDatabase.ELECTION_ID);
+            votingService.setVotedIndex(index);
+        }
+        if (journal != null) {
+            journal.startApplier(voteDAO, counterEngine == null, 500, 5);
+            votingService.setJournal(journal);
+        }
+
+        resultsFeed = new ResultsFeed(voteDAO, EmbeddedDatabase.ELECTION_ID, 250, 5_000);
+        resultsFeed.start();
+        leaderboard = new Leaderboard(voteDAO, candidateDAO, EmbeddedDatabase.ELECTION_ID, 5_000);
+        leaderboard.start();
+
+        System.out.printf("Simulating %d voters, ramp %d s, think %d ms, pool %d, %s threads%n",
+                voters, rampMillis / 1000, thinkMillis, poolSize,
+                VirtualThreads.isSupported() ? "virtual" : "platform");
+
+        long start = System.nanoTime();
+        ExecutorService sessions = VirtualThreads.newThreadPerTaskExecutor("voter");
+        Thread progress = startProgressReporter(start);
+        Thread[] exports = startAdminReaders(voteDAO);
+        try {
+            for (int i = 0; i < voters; i++) {
+                waitForArrival(start, i);
+                int voter = i;
+                activeSessions.incrementAndGet();
+                sessions.execute(() -> session(voter));
+            }
+            sessions.shutdown();
+            sessions.awaitTermination(1, TimeUnit.HOURS);
+        } finally {
+            progress.interrupt();
+            exporting = false;
+        }
+        for (Thread t : exports) t.join();
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        if (journal != null) journal.close();
+        if (counterEngine != null) counterEngine.close();
+        electionState.close();
+        // Settle the feed and the leaderboard against the database once voting has stopped
+        resultsFeed.requestResync();
+        leaderboard.rebuild();
+        Thread.sleep(500);
+        resultsFeed.close();
+        leaderboard.close();
+
+        printReport(elapsedSeconds);
+        boolean consistent = checkTallies();
+        DatabaseConnection.shutdown();
+        return consistent;
+    }
+
+    // ==========================================================
+    //                       ONE VOTER
+    // ==========================================================
+
+    private void session(int i) {
+        long sessionStart = System.nanoTime();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String voterId = EmbeddedDatabase.voterId(i);
+        try {
+            boolean mistyped = random.nextDouble() < badPasswordRate;
+            String password = mistyped ? "wrong" : EmbeddedDatabase.password(i);
+
+            long t = System.nanoTime();
+            Voter voter = voterDAO.authenticateVoter(voterId, password);
+            record("login", t);
+            if (voter == null) {
+                count(mistyped ? "login rejected (bad password)" : "login failed");
+                if (!mistyped) return;
+                think(random);
+                t = System.nanoTime();
+                voter = voterDAO.authenticateVoter(voterId, EmbeddedDatabase.password(i));
+                record("login", t);
+                if (voter == null) {
+                    count("login failed");
+                    return;
+                }
+            }
+            think(random);
+
+            t = System.nanoTime();
+            List<CandidateBallotEntry> ballot = candidateDAO.getBallot();
+            record("ballot", t);
+            if (ballot.isEmpty()) {
+                count("empty ballot");
+                return;
+            }
+            think(random);
+
+            t = System.nanoTime();
+            boolean voted = votingService.hasVoted(voterId);
+            record("hasVoted", t);
+            if (voted) {
+                count("already voted before casting");
+                return;
+            }
+            think(random);
+
+            int candidateId = ballot.get(random.nextInt(ballot.size())).getCandidateId();
+            castVote(voterId, candidateId);
+
+            if (random.nextDouble() < doubleVoteRate) {
+                think(random);
+                castVote(voterId, candidateId);
+            }
+        } catch (RuntimeException e) {
+            count("exception: " + e.getClass().getSimpleName());
+        } finally {
+            record("session", sessionStart);
+            activeSessions.decrementAndGet();
+            finishedSessions.increment();
+        }
+    }
+
+    private void castVote(String voterId, int candidateId) {
+        long t = System.nanoTime();
+        VoteOutcome outcome = votingService.castVote(voterId, candidateId);
+        record("castVote", t);
+        count("vote " + outcome);
+        if (outcome.isAccepted()) acceptedVotes.increment();
+    }
+
+    private void think(ThreadLocalRandom random) {
+        if (thinkMillis <= 0) return;
+        long pause = (long) (-Math.log(1 - random.nextDouble()) * thinkMillis);
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(pause));
+    }
+
+    private void record(String step, long startNanos) {
+        latency.get(step).record(System.nanoTime() - startNanos);
+    }
+
+    private void count(String outcome) {
+        outcomes.computeIfAbsent(outcome, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * Admin export loop: counts each export as completed or shed by admission control
+     */
+    private Thread[] startAdminReaders(VoteDAO voteDAO) {
+        Thread[] threads = new Thread[adminReaders];
+        for (int i = 0; i < adminReaders; i++) {
+            threads[i] = new Thread(() -> {
+                while (exporting) {
+                    CancellationScope scope = new CancellationScope();
+                    scope.call(() -> voteDAO.getVoteRowsByElection(EmbeddedDatabase.ELECTION_ID));
+                    if (scope.getRejection() != null) {
+                        count("admin export shed");
+                        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+                    } else {
+                        count("admin export completed");
+                    }
+                }
+            }, "sim-admin-" + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+        return threads;
+    }
+
+    // ==========================================================
+    //                       ARRIVALS & REPORTING
+    // ==========================================================
+
+    /**
+     * Linear arrival-rate ramp: with rate proportional to t, voter i arrives
+     * at rampMillis * sqrt(i / voters)
+     */
+    private void waitForArrival(long startNanos, int i) throws InterruptedException {
+        long arrivalNanos = TimeUnit.MILLISECONDS.toNanos((long) (rampMillis * Math.sqrt(i / (double) voters)));
+        long wait = startNanos + arrivalNanos - System.nanoTime();
+        if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+    }
+
+    private Thread startProgressReporter(long startNanos) {
+        Thread t = new Thread(() -> {
+            try {
+                while (true) {
+                    TimeUnit.SECONDS.sleep(5);
+                    System.out.printf("[%5.1fs] active=%d finished=%d accepted=%d pool: %s%n",
+                            (System.nanoTime() - startNanos) / 1e9, activeSessions.get(),
+                            finishedSessions.sum(), acceptedVotes.sum(), DatabaseConnection.getPoolStats());
+                }
+            } catch (InterruptedException e) {
+                // run finished
+            }
+        }, "sim-progress");
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    private void printReport(double elapsedSeconds) {
+        System.out.println();
+        System.out.printf("Finished %d sessions in %.1f s: %.1f sessions/s, %.1f accepted votes/s%n",
+                finishedSessions.sum(), elapsedSeconds, finishedSessions.sum() / elapsedSeconds,
+                acceptedVotes.sum() / elapsedSeconds);
+
+        System.out.println();
+        System.out.printf("%-10s %9s %9s %9s %9s %9s %9s%n", "step", "count", "mean ms", "p50 ms", "p99 ms",
+                "p999 ms", "max ms");
+        for (Map.Entry<String, LatencyHistogram> e : latency.entrySet()) {
+            LatencyHistogram h = e.getValue();
+            System.out.printf("%-10s %9d %9.2f %9.2f %9.2f %9.2f %9.2f%n", e.getKey(), h.getCount(),
+                    h.getMeanMillis(), h.getPercentileMillis(0.50), h.getPercentileMillis(0.99),
+                    h.getPercentileMillis(0.999), h.getMaxMillis());
+        }
+
+        System.out.println();
+        System.out.println("Outcomes:");
+        new TreeMap<>(outcomes).forEach((k, v) -> System.out.printf("  %-36s %9d%n", k, v.sum()));
+
+        System.out.println();
+        System.out.print(DaoMetrics.snapshot());
+        System.out.println("pool " + DatabaseConnection.getPoolStats());
+        AdmissionController admission = DatabaseConnection.getAdmission();
+        if (admission != null) {
+            System.out.println("admission");
+            System.out.print(admission);
+        }
+    }
+
+    /**
+     * Compare every place a vote is counted
+     * @return true if all tallies match the accepted votes
+     */
+    private boolean checkTallies() throws SQLException {
+        long votes;
+        long voteCounts;
+        long votedFlags;
+        long results;
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement st = conn.createStatement()) {
+            votes = single(st, "SELECT COUNT(*) FROM votes WHERE election_id = " + EmbeddedDatabase.ELECTION_ID);
+            voteCounts = single(st, "SELECT COALESCE(SUM(vote_count), 0) FROM candidates");
+            votedFlags = single(st, "SELECT COUNT(*) FROM voters WHERE has_voted = 1");
+            results = single(st, "SELECT COALESCE(SUM(votes), 0) FROM election_results WHERE election_id = "
+                    + EmbeddedDatabase.ELECTION_ID);
+        }
+
+        ResultsFeed.Snapshot feed = resultsFeed.getLatest();
+        long feedTotal = feed != null ? feed.getTotal() : -1;
+
+        // Every candidate's count on the board against the database
+        VoteDAO voteDAO = new VoteDAO();
+        int boardMismatches = 0;
+        for (CandidateBallotEntry c : candidateDAO.getBallot()) {
+            if (leaderboard.getVotes(c.getCandidateId()) != voteDAO.getVoteCountForCandidate(c.getCandidateId())) {
+                boardMismatches++;
+            }
+        }
+
+        long accepted = acceptedVotes.sum();
+        boolean consistent = votes == accepted && voteCounts == accepted && votedFlags == accepted
+                && results == accepted && feedTotal == accepted
+                && leaderboard.getTotal() == accepted && boardMismatches == 0;
+
+        System.out.println();
+        System.out.println("Tally check:");
+        System.out.printf("  accepted by service       %9d%n", accepted);
+        System.out.printf("  votes rows                %9d%n", votes);
+        System.out.printf("  SUM(candidates.vote_count)%9d%n", voteCounts);
+        System.out.printf("  voters.has_voted = 1      %9d%n", votedFlags);
+        System.out.printf("  SUM(election_results)     %9d%n", results);
+        System.out.printf("  results feed total        %9d%n", feedTotal);
+        System.out.printf("  leaderboard total         %9d%n", leaderboard.getTotal());
+        System.out.printf("  leaderboard mismatches    %9d%n", boardMismatches);
+        System.out.println("  leader board: " + leaderboard.getTop(3));
+        System.out.println(consistent ? "  CONSISTENT" : "  MISMATCH");
+        return consistent;
+    }
+
+    private static long single(Statement st, String sql) throws SQLException {
+        try (ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package bench;
+
+import utils.ConnectionPool;
+import utils.DatabaseConnection;
+import utils.SchemaMigrator;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
+/**
+ * Embedded H2 database (MySQL compatibility mode) with the voting schema
+ * from {@link SchemaMigrator}, seeded with configurable volumes. Used by the
+ * benchmarks and the load simulator; requires the H2 driver on the classpath.
+ */
+public class EmbeddedDatabase {
+
+    /** ID of the seeded, active election */
+    public static final int ELECTION_ID = 1;
+
+    private final String url;
+    private final long seed;
+
+    /**
+     * @param name in-memory database name; separate names give separate databases
+     * @param seed random seed, so repeated runs produce identical data
+     */
+    public EmbeddedDatabase(String name, long seed) {
+        this.url = "jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        this.seed = seed;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Point DatabaseConnection at this database with the given pool size
+     * @param maxPoolSize maximum pooled connections
+     */
+    public void install(int maxPoolSize) {
+        DatabaseConnection.configure(new ConnectionPool.Config(url, "sa", "")
+                .minSize(Math.min(4, maxPoolSize))
+                .maxSize(maxPoolSize)
+                .acquireTimeoutMillis(30_000)
+                .leakDetectionThresholdMillis(0)
+                .admissionControl(Boolean.parseBoolean(System.getProperty("db.admission", "true"))));
+    }
+
+    /**
+     * Make this database DatabaseConnection's only read replica; pair it with
+     * a {@link LaggingReplica} to fill it from the primary
+     * @param maxPoolSize maximum pooled replica connections
+     */
+    public void installAsReplica(int maxPoolSize) {
+        DatabaseConnection.configureReplicas(new ConnectionPool.Config(url, "sa", "")
+                .minSize(Math.min(4, maxPoolSize))
+                .maxSize(maxPoolSize)
+                .acquireTimeoutMillis(30_000)
+                .leakDetectionThresholdMillis(0)
+                .admissionControl(Boolean.parseBoolean(System.getProperty("db.admission", "true"))));
+    }
+
+    /**
+     * Drop everything, create the schema and seed it
+     * @param voters number of approved voters (voter IDs "v100000" upwards)
+     * @param candidates number of approved candidates
+     * @param votedFraction share of voters who have already voted in the active election
+     * @throws SQLException if the schema or data cannot be written
+     */
+    public void createAndSeed(int voters, int candidates, double votedFraction) throws SQLException {
+        Random random = new Random(seed);
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            try (Statement st = conn.createStatement()) {
+                st.execute("DROP ALL OBJECTS");
+            }
+            SchemaMigrator.migrate(conn);
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO elections (election_id, election_name, is_active) VALUES (?, ?, TRUE)")) {
+                ps.setInt(1, ELECTION_ID);
+                ps.setString(2, "Benchmark election");
+                ps.executeUpdate();
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO candidates (rollno, name, dept, symbol_filename, is_approved, vote_count) "
+                            + "VALUES (?, ?, ?, ?, TRUE, 0)")) {
+                for (int i = 1; i <= candidates; i++) {
+                    ps.setString(1, "C" + i);
+                    ps.setString(2, "Candidate " + i);
+                    ps.setString(3, department(i));
+                    ps.setString(4, "symbol" + i + ".png");
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+
+            int[] tally = new int[candidates + 1];
+            try (PreparedStatement voter = conn.prepareStatement(
+                    "INSERT INTO voters (voter_id, roll_number, full_name, department, year_of_study, email, password, is_approved, has_voted) "
+                            + "VALUES (?, ?, ?, ?, ?, ?, ?, TRUE, ?)");
+                 PreparedStatement vote = conn.prepareStatement(
+                         "INSERT INTO votes (voter_id, candidate_id, election_id) VALUES (?, ?, ?)")) {
+
+                for (int i = 0; i < voters; i++) {
+                    String roll = String.valueOf(100_000 + i);
+                    boolean voted = random.nextDouble() < votedFraction;
+
+                    voter.setString(1, voterId(i));
+                    voter.setString(2, roll);
+                    voter.setString(3, "Voter " + i);
+                    voter.setString(4, department(i));
+                    voter.setString(5, String.valueOf(1 + i % 4));
+                    voter.setString(6, "voter" + i + "@example.edu");
+                    voter.setString(7, password(i));
+                    voter.setBoolean(8, voted);
+                    voter.addBatch();
+
+                    if (voted) {
+                        int candidate = 1 + random.nextInt(candidates);
+                        tally[candidate]++;
+                        vote.setString(1, voterId(i));
+                        vote.setInt(2, candidate);
+                        vote.setInt(3, ELECTION_ID);
+                        vote.addBatch();
+                    }
+
+                    if (i % 1000 == 999) {
+                        voter.executeBatch();
+                        vote.executeBatch();
+                    }
+                }
+                voter.executeBatch();
+                vote.executeBatch();
+            }
+
+            try (PreparedStatement count = conn.prepareStatement(
+                    "UPDATE candidates SET vote_count = ? WHERE candidate_id = ?");
+                 PreparedStatement result = conn.prepareStatement(
+                         "INSERT INTO election_results (election_id, candidate_id, votes) VALUES (?, ?, ?)")) {
+                for (int c = 1; c <= candidates; c++) {
+                    count.setInt(1, tally[c]);
+                    count.setInt(2, c);
+                    count.addBatch();
+                    result.setInt(1, ELECTION_ID);
+                    result.setInt(2, c);
+                    result.setInt(3, tally[c]);
+                    result.addBatch();
+                }
+                count.executeBatch();
+                result.executeBatch();
+            }
+
+            conn.commit();
+        }
+    }
+
+    /**
+     * Add active elections with consecutive IDs, e.g. to give write benchmarks
+     * fresh (voter, election) pairs
+     * @param firstId ID of the first election
+     * @param count number of elections
+     * @throws SQLException if the elections cannot be written
+     */
+    public void createElections(int firstId, int count) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "INSERT INTO elections (election_id, election_name, is_active) VALUES (?, ?, TRUE)")) {
+            for (int i = 0; i < count; i++) {
+                ps.setInt(1, firstId + i);
+                ps.setString(2, "Election " + (firstId + i));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /** Voter ID of the i-th seeded voter */
+    public static String voterId(int i) {
+        return "v" + (100_000 + i);
+    }
+
+    /** Password of the i-th seeded voter */
+    public static String password(int i) {
+        return "pw" + i;
+    }
+
+    private static String department(int i) {
+        switch (i % 4) {
+            case 0: return "CSE";
+            case 1: return "ECE";
+            case 2: return "MECH";
+            default: return "CIVIL";
+        }
+    }
+}
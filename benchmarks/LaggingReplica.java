@@ -0,0 +1,202 @@
+package bench;
+
+import utils.SqlUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simulated asynchronous replication between two embedded H2 databases.
+ *
+ * The replica starts as a full copy of the primary (schema and data). After
+ * that, every interval the primary's rows are read into memory, and each
+ * snapshot is loaded into the replica lag milliseconds later, so the replica
+ * shows the primary as it was between lag and lag + interval ago. A snapshot
+ * replaces every table's rows in one transaction, so readers never see a
+ * half-loaded copy. Schema changes after construction are not copied.
+ *
+ * For exercising replica routing and read-your-writes with
+ * {@link EmbeddedDatabase}; requires the H2 driver on the classpath.
+ */
+public class LaggingReplica implements AutoCloseable {
+
+    private final String primaryUrl;
+    private final String replicaUrl;
+    private final long lagMillis;
+    private final List<String> tables;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong applied = new AtomicLong();
+    private final Object applyLock = new Object();
+
+    /**
+     * Copy the primary into the replica, then keep copying it with the given lag
+     * @param primary database written to
+     * @param replica database to copy into; its contents are replaced
+     * @param lagMillis delay between taking a snapshot and applying it
+     * @param intervalMillis how often a snapshot is taken
+     * @throws SQLException if the initial copy fails
+     */
+    public LaggingReplica(EmbeddedDatabase primary, EmbeddedDatabase replica, long lagMillis, long intervalMillis)
+            throws SQLException {
+        this.primaryUrl = primary.getUrl();
+        this.replicaUrl = replica.getUrl();
+        this.lagMillis = lagMillis;
+        copySchemaAndData();
+        this.tables = listTables();
+        this.scheduler = Executors.newScheduledThreadPool(1, r -> {
+            Thread t = new Thread(r, "lagging-replica");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::snapshotLater, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Copy the primary's rows into the replica now, ignoring the lag
+     * @throws SQLException if the copy fails
+     */
+    public void catchUp() throws SQLException {
+        apply(snapshot());
+    }
+
+    /**
+     * @return number of snapshots loaded into the replica
+     */
+    public long getAppliedSnapshots() {
+        return applied.get();
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void snapshotLater() {
+        try {
+            Map<String, List<Object[]>> rows = snapshot();
+            scheduler.schedule(() -> {
+                try {
+                    apply(rows);
+                } catch (SQLException e) {
+                    System.err.println("Error applying replica snapshot: " + e.getMessage());
+                }
+            }, lagMillis, TimeUnit.MILLISECONDS);
+        } catch (SQLException e) {
+            System.err.println("Error taking replica snapshot: " + e.getMessage());
+        }
+    }
+
+    /** Every table's rows, read in one transaction */
+    private Map<String, List<Object[]>> snapshot() throws SQLException {
+        Map<String, List<Object[]>> rows = new LinkedHashMap<>();
+        try (Connection conn = DriverManager.getConnection(primaryUrl, "sa", "")) {
+            conn.setAutoCommit(false);
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try (Statement st = conn.createStatement()) {
+                for (String table : tables) {
+                    List<Object[]> list = new ArrayList<>();
+                    try (ResultSet rs = st.executeQuery("SELECT * FROM " + table)) {
+                        int columns = rs.getMetaData().getColumnCount();
+                        while (rs.next()) {
+                            Object[] row = new Object[columns];
+                            for (int i = 0; i < columns; i++) row[i] = rs.getObject(i + 1);
+                            list.add(row);
+                        }
+                    }
+                    rows.put(table, list);
+                }
+            }
+            conn.commit();
+        }
+        return rows;
+    }
+
+    /** Replace the replica's rows with the snapshot in one transaction */
+    private void apply(Map<String, List<Object[]>> rows) throws SQLException {
+        synchronized (applyLock) {
+            try (Connection conn = DriverManager.getConnection(replicaUrl, "sa", "")) {
+                conn.setAutoCommit(false);
+                try (Statement st = conn.createStatement()) {
+                    st.execute("SET REFERENTIAL_INTEGRITY FALSE");
+                    for (Map.Entry<String, List<Object[]>> table : rows.entrySet()) {
+                        st.executeUpdate("DELETE FROM " + table.getKey());
+                        if (table.getValue().isEmpty()) continue;
+
+                        int columns = table.getValue().get(0).length;
+                        String sql = "INSERT INTO " + table.getKey() + " VALUES (" + SqlUtils.placeholders(columns) + ")";
+                        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                            for (Object[] row : table.getValue()) {
+                                for (int i = 0; i < columns; i++) ps.setObject(i + 1, row[i]);
+                                ps.addBatch();
+                            }
+                            ps.executeBatch();
+                        }
+                    }
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    try (Statement st = conn.createStatement()) {
+                        st.execute("SET REFERENTIAL_INTEGRITY TRUE");
+                    }
+                }
+            }
+            applied.incrementAndGet();
+        }
+    }
+
+    private void copySchemaAndData() throws SQLException {
+        Path file;
+        try {
+            file = Files.createTempFile("replica-", ".sql");
+        } catch (IOException e) {
+            throw new SQLException("Cannot create replica script file", e);
+        }
+        try {
+            try (Connection conn = DriverManager.getConnection(primaryUrl, "sa", "");
+                 Statement st = conn.createStatement()) {
+                st.execute("SCRIPT NOPASSWORDS NOSETTINGS TO '" + file.toAbsolutePath() + "'");
+            }
+            try (Connection conn = DriverManager.getConnection(replicaUrl, "sa", "");
+                 Statement st = conn.createStatement()) {
+                st.execute("DROP ALL OBJECTS");
+                st.execute("RUNSCRIPT FROM '" + file.toAbsolutePath() + "'");
+            }
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                System.err.println("Cannot delete " + file + ": " + e.getMessage());
+            }
+        }
+        applied.incrementAndGet();
+    }
+
+    private List<String> listTables() throws SQLException {
+        List<String> list = new ArrayList<>();
+        try (Connection conn = DriverManager.getConnection(primaryUrl, "sa", "");
+             ResultSet rs = conn.getMetaData().getTables(null, null, null, new String[]{"TABLE", "BASE TABLE"})) {
+            while (rs.next()) {
+                String schema = rs.getString("TABLE_SCHEM");
+                if (!"information_schema".equalsIgnoreCase(schema)) list.add(rs.getString("TABLE_NAME"));
+            }
+        }
+        return list;
+    }
+}
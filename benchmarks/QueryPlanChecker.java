@@ -0,0 +1,371 @@
+package bench;
+
+import dao.AdminDAO;
+import dao.CandidateDAO;
+import dao.ElectionDAO;
+import dao.VoteDAO;
+import dao.VoterDAO;
+import models.Admin;
+import models.CandidateFilter;
+import models.Vote;
+import models.Voter;
+import models.VoterFilter;
+import utils.AdmissionController;
+import utils.DaoMetrics;
+import utils.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Query plan regression check for the DAOs.
+ *
+ * Seeds an embedded database with the migrated schema, runs every DAO
+ * method once while {@link DaoMetrics} reports the statements they execute,
+ * then runs EXPLAIN ANALYZE on each SELECT, UPDATE, DELETE and
+ * INSERT ... SELECT with the parameters it was run with, inside a
+ * transaction that is rolled back.
+ *
+ * An access counts as a scan when it reads the whole table, or when an
+ * index only narrows it to more than a tenth of the table (an index on
+ * election_id does not help hasVoted when there is one election). A scan of
+ * a large table fails the check when it comes from a hot
+ * operation: anything AdmissionController does not class as an admin
+ * report, plus the admin lookups in {@link #HOT_ADMIN_OPERATIONS}. Exports,
+ * whole-table listings and the bulk loads in {@link #BULK_LOAD_OPERATIONS}
+ * read every row by design; their scans are listed but allowed. Small tables (elections, admins, candidates) are scanned
+ * whenever the optimizer prefers it, so the check needs enough rows to be
+ * meaningful for votes and voters.
+ */
+public class QueryPlanChecker {
+
+    /** Admin-class operations that must still use an index */
+    static final Set<String> HOT_ADMIN_OPERATIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "VoterDAO.voterExists", "VoterDAO.getPendingVoters", "VoterDAO.approveVoter",
+            "VoterDAO.updateVoter", "VoterDAO.deleteVoter", "VoteDAO.getVoteCountForCandidate",
+            "VoteDAO.getTotalVotes", "VoteDAO.getResultsByElection", "VoteDAO.deleteVotesByVoter",
+            "AdminDAO.usernameExists", "AdminDAO.getAdminById")));
+
+    /** Voting-path operations that load a whole election once, by design */
+    static final Set<String> BULK_LOAD_OPERATIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "VoteDAO.forEachVoterId")));
+
+    /** Tables small enough that a scan is never a problem */
+    private static final Set<String> SMALL_TABLES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "admins", "candidates", "elections", "schema_version")));
+
+    /** Rows an access may read before it counts as a scan, if that is more than a tenth of the table */
+    private static final long MIN_SCAN_ROWS = 1_000;
+
+    // "public"."votes" ["v"] /* public.idx_votes_candidate: candidate_id = ?1 */ [/* direct lookup */] [/* scanCount: 2 */]
+    private static final Pattern H2_ACCESS = Pattern.compile(
+            "\"\\w+\"\\.\"(\\w+)\"(?:\\s+\"\\w+\")?\\s*/\\*\\s*([^*]*?)\\s*\\*/"
+                    + "(\\s*/\\*\\s*direct lookup\\s*\\*/)?(?:\\s*/\\*\\s*scanCount: (\\d+)\\s*\\*/)?");
+
+    /**
+     * One statement a DAO ran and how the database plans it
+     */
+    public static final class Finding {
+        private final String operation;
+        private final String sql;
+        private final Set<String> scannedTables;
+        private final boolean hot;
+
+        Finding(String operation, String sql, Set<String> scannedTables, boolean hot) {
+            this.operation = operation;
+            this.sql = sql;
+            this.scannedTables = scannedTables;
+            this.hot = hot;
+        }
+
+        public String getOperation() { return operation; }
+        public String getSql() { return sql; }
+        /** Large tables read in full; empty if every access is indexed */
+        public Set<String> getScannedTables() { return scannedTables; }
+        public boolean isHot() { return hot; }
+
+        /** A hot operation that scans a large table */
+        public boolean isRegression() {
+            return hot && !scannedTables.isEmpty();
+        }
+    }
+
+    private static final class Captured {
+        final String operation;
+        final String sql;
+        final Map<Integer, Object> parameters;
+
+        Captured(String operation, String sql, Map<Integer, Object> parameters) {
+            this.operation = operation;
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+    }
+
+    private final Map<String, Captured> captured = new LinkedHashMap<>();
+    private final Map<String, Long> tableRows = new HashMap<>();
+
+    /**
+     * Run the DAO workload and record the first execution of every distinct statement
+     * @param voters voters seeded in the embedded database
+     * @throws SQLException if a DAO method that reports failures fails
+     */
+    public void capture(int voters) throws SQLException {
+        DaoMetrics.setStatementListener((operation, sql, parameters) -> {
+            synchronized (captured) {
+                captured.putIfAbsent(operation + "\n" + sql, new Captured(operation, sql, parameters));
+            }
+        });
+        try {
+            exerciseDaos(voters);
+        } finally {
+            DaoMetrics.setStatementListener(null);
+        }
+    }
+
+    /**
+     * EXPLAIN ANALYZE every captured statement; nothing is committed
+     * @return one finding per statement, in the order they first ran
+     * @throws SQLException if a statement cannot be explained
+     */
+    public List<Finding> explain() throws SQLException {
+        List<Finding> findings = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            countRows(conn);
+            conn.setAutoCommit(false);
+            try {
+                for (Captured c : captured.values()) {
+                    if (!explainable(c.sql)) continue;
+                    boolean hot = (AdmissionController.defaultPriority(c.operation) != AdmissionController.Priority.ADMIN_REPORT
+                            && !BULK_LOAD_OPERATIONS.contains(c.operation))
+                            || HOT_ADMIN_OPERATIONS.contains(c.operation);
+                    Set<String> scanned = scannedTables(conn, c);
+                    conn.rollback();
+                    findings.add(new Finding(c.operation, c.sql, scanned, hot));
+                }
+            } finally {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+        }
+        return findings;
+    }
+
+    /** Large tables the statement reads all or most of */
+    private Set<String> scannedTables(Connection conn, Captured c) throws SQLException {
+        String plan;
+        try {
+            plan = plan(conn, "EXPLAIN ANALYZE ", c);
+        } catch (SQLException e) {
+            // Out of sequence a write can fail (a row it inserts already exists); fall back to the estimated plan
+            conn.rollback();
+            plan = plan(conn, "EXPLAIN ", c);
+        }
+        Set<String> scanned = new TreeSet<>();
+        Matcher m = H2_ACCESS.matcher(plan);
+        while (m.find()) {
+            String table = m.group(1);
+            if (SMALL_TABLES.contains(table)) continue;
+            String access = m.group(2);
+            boolean fullScan = access.endsWith(".tableScan") || (!access.contains(":") && m.group(3) == null);
+            if (!fullScan && m.group(4) != null) {
+                long rows = Long.parseLong(m.group(4));
+                fullScan = rows > MIN_SCAN_ROWS && rows > tableRows.getOrDefault(table, 0L) / 10;
+            }
+            if (fullScan) scanned.add(table);
+        }
+        return scanned;
+    }
+
+    private static String plan(Connection conn, String explain, Captured c) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(explain + c.sql)) {
+            for (Map.Entry<Integer, Object> p : c.parameters.entrySet()) ps.setObject(p.getKey(), p.getValue());
+            try (ResultSet rs = ps.executeQuery()) {
+                StringBuilder sb = new StringBuilder();
+                while (rs.next()) sb.append(rs.getString(1)).append('\n');
+                return sb.toString();
+            }
+        }
+    }
+
+    private void countRows(Connection conn) throws SQLException {
+        List<String> tables = new ArrayList<>();
+        try (ResultSet rs = conn.getMetaData().getTables(null, null, "%", new String[]{"TABLE"})) {
+            while (rs.next()) {
+                if (!"information_schema".equalsIgnoreCase(rs.getString("TABLE_SCHEM"))) tables.add(rs.getString("TABLE_NAME"));
+            }
+        }
+        try (Statement st = conn.createStatement()) {
+            for (String table : tables) {
+                try (ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM " + table)) {
+                    rs.next();
+                    tableRows.put(table, rs.getLong(1));
+                }
+            }
+        }
+    }
+
+    private static boolean explainable(String sql) {
+        String s = sql.trim().toUpperCase();
+        if (s.startsWith("SELECT") || s.startsWith("UPDATE") || s.startsWith("DELETE")) return true;
+        return s.startsWith("INSERT") && s.contains(" SELECT ");
+    }
+
+    /**
+     * Call every DAO method once; destructive calls go last and leave the
+     * seeded votes and voters in place
+     */
+    private static void exerciseDaos(int voters) throws SQLException {
+        VoterDAO voterDAO = new VoterDAO();
+        CandidateDAO candidateDAO = new CandidateDAO();
+        VoteDAO voteDAO = new VoteDAO();
+        ElectionDAO electionDAO = new ElectionDAO();
+        AdminDAO adminDAO = new AdminDAO();
+        int election = EmbeddedDatabase.ELECTION_ID;
+        String voter = EmbeddedDatabase.voterId(voters / 2);
+        String other = EmbeddedDatabase.voterId(voters / 2 + 1);
+
+        Admin admin = new Admin();
+        admin.setUsername("plancheck");
+        admin.setPassword("plancheck");
+        admin.setFullName("Plan Check");
+        admin.setEmail("plancheck@example.edu");
+        adminDAO.registerAdmin(admin);
+        adminDAO.usernameExists("plancheck");
+        Admin stored = adminDAO.authenticateAdmin("plancheck", "plancheck");
+        if (stored != null) {
+            adminDAO.getAdminById(stored.getAdminId());
+            adminDAO.changePassword(stored.getAdminId(), "plancheck");
+        }
+
+        Voter pending = new Voter();
+        pending.setVoterId("plancheck1");
+        pending.setRollNumber("plancheck1");
+        pending.setFullName("Pending Voter");
+        pending.setDepartment("CSE");
+        pending.setYearOfStudy("1");
+        pending.setEmail("pending@example.edu");
+        pending.setPassword("pw");
+        voterDAO.registerVoter(pending);
+        voterDAO.voterExists("plancheck1");
+        voterDAO.authenticateVoter(voter, EmbeddedDatabase.password(voters / 2));
+        voterDAO.getVoterById(voter);
+        voterDAO.isElectionActive();
+        voterDAO.hasVoted(voter);
+        voterDAO.getPendingVoters();
+        voterDAO.getAllApprovedVoters();
+        voterDAO.getAllVoters();
+        try (Stream<Voter> s = voterDAO.streamAllVoters()) {
+            s.count();
+        }
+        VoterFilter filter = new VoterFilter("CSE", "1", Boolean.TRUE);
+        voterDAO.getVoterSummaries(filter);
+        voterDAO.getVotersPage(filter, null, 50);
+        voterDAO.getVotersPage(new VoterFilter(null, null, Boolean.FALSE), voter, 50);
+        voterDAO.updateVoter(pending);
+        voterDAO.approveVoter("plancheck1");
+        voterDAO.approveVoters(Collections.singletonList("plancheck1"));
+        voterDAO.approvePendingVoters(new VoterFilter("CSE", null, null));
+
+        candidateDAO.getAllCandidates();
+        candidateDAO.getCandidateById(1);
+        candidateDAO.getPendingCandidates();
+        candidateDAO.getApprovedCandidates();
+        candidateDAO.getBallot();
+        candidateDAO.getCandidatesPage(new CandidateFilter("CSE", Boolean.TRUE), null, 10);
+        candidateDAO.approveCandidate(1);
+        candidateDAO.approveCandidates(Collections.singletonList(1));
+        candidateDAO.approvePendingCandidates(new CandidateFilter("CSE", null));
+        candidateDAO.incrementVoteCount(1);
+        candidateDAO.addVoteCounts(Collections.singletonMap(1, -1L));
+
+        electionDAO.getActiveElections();
+        electionDAO.getScheduledElections(new Timestamp(System.currentTimeMillis()));
+
+        Vote vote = new Vote();
+        vote.setVoterId(other);
+        vote.setCandidateId(2);
+        vote.setElectionId(election);
+        voteDAO.hasVoted(other, election);
+        voteDAO.isVoterEligible(other);
+        voteDAO.castVoteAtomic(vote);
+        vote.setVoterId(voter);
+        voteDAO.applyVotes(Collections.singletonList(vote), true);
+        voteDAO.forEachVoterId(election, id -> { });
+        voteDAO.getVotesByElection(election);
+        voteDAO.getVoteRowsByElection(election);
+        voteDAO.getVoteCountForCandidate(2);
+        voteDAO.getTotalVotes(election);
+        voteDAO.getResultsByElection(election);
+        voteDAO.queryResultsByElection(election);
+        voteDAO.countVotesByCandidate(election);
+        voteDAO.queryVoteCountsByCandidate(election);
+        voteDAO.getAllVotes();
+        try (Stream<?> s = voteDAO.streamVotesByElection(election)) {
+            s.count();
+        }
+        try (Stream<?> s = voteDAO.streamAllVotes()) {
+            s.count();
+        }
+        voteDAO.rebuildElectionResults(election);
+        candidateDAO.reconcileVoteCounts();
+
+        voteDAO.deleteVotesByVoter(voter);
+        voterDAO.deleteVoters(Collections.singletonList("plancheck1"));
+        voterDAO.deleteVoter(other);
+        candidateDAO.deleteCandidates(Collections.singletonList(-1));
+        candidateDAO.deleteCandidate(-1);
+        // Same statements as for the seeded election, without emptying the votes table
+        voteDAO.deleteVotesByElection(election + 1);
+        electionDAO.closeElection(election + 1, new Timestamp(System.currentTimeMillis()));
+        electionDAO.openElection(election + 1, new Timestamp(System.currentTimeMillis()));
+        electionDAO.setActive(election, true);
+    }
+
+    /**
+     * Seed an embedded database, check every DAO query plan and exit with
+     * status 1 if a hot query scans a large table
+     * @param args optional number of voters to seed (default 20000)
+     */
+    public static void main(String[] args) throws SQLException {
+        int voters = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        EmbeddedDatabase db = new EmbeddedDatabase("plan-check", 42);
+        db.install(4);
+        db.createAndSeed(voters, 20, 0.5);
+        try (Connection conn = DatabaseConnection.getConnection(); Statement st = conn.createStatement()) {
+            st.execute("ANALYZE");
+        }
+
+        QueryPlanChecker checker = new QueryPlanChecker();
+        checker.capture(voters);
+        List<Finding> findings = checker.explain();
+        DatabaseConnection.shutdown();
+
+        int regressions = 0;
+        for (Finding f : findings) {
+            String verdict = f.isRegression() ? "FULL SCAN" : !f.getScannedTables().isEmpty() ? "scan (allowed)" : "ok";
+            if (f.isRegression()) regressions++;
+            System.out.printf("%-15s %-40s %s%s%n", verdict, f.getOperation(), f.getSql(),
+                    f.getScannedTables().isEmpty() ? "" : "  scans " + f.getScannedTables());
+        }
+        System.out.printf("%d statements checked, %d hot statements scan a full table%n", findings.size(), regressions);
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+}
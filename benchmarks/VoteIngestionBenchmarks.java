@@ -0,0 +1,93 @@
+package bench;
+
+import dao.VoteDAO;
+import dao.VoteIngestionPipeline;
+import models.Vote;
+import org.openjdk.jmh.annotations.*;
+import utils.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * VoteDAO.castVote with one INSERT/commit per vote against the group-commit
+ * pipeline. Run at 1, 16 and 256 threads to see where batching pays off.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class VoteIngestionBenchmarks {
+
+    private static final int FIRST_WRITE_ELECTION = 2;
+
+    @Param({"per-vote", "group-commit"})
+    public String mode;
+
+    @Param("50000")
+    public int voters;
+
+    @Param("20")
+    public int candidates;
+
+    @Param("100")
+    public int writeElections;
+
+    @Param("128")
+    public int batchSize;
+
+    @Param("2")
+    public long maxLingerMillis;
+
+    @Param("64")
+    public int poolSize;
+
+    private final VoteDAO voteDAO = new VoteDAO();
+    private final AtomicInteger nextBallot = new AtomicInteger();
+    private VoteIngestionPipeline pipeline;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        EmbeddedDatabase db = new EmbeddedDatabase("bench-ingest-" + mode, 42);
+        db.install(poolSize);
+        db.createAndSeed(voters, candidates, 0);
+        db.createElections(FIRST_WRITE_ELECTION, writeElections);
+
+        if ("group-commit".equals(mode)) {
+            pipeline = new VoteIngestionPipeline(batchSize * 16, batchSize, maxLingerMillis, true);
+            VoteDAO.setIngestionPipeline(pipeline);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeBenchmarkVotes() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement st = conn.createStatement()) {
+            st.executeUpdate("DELETE FROM votes WHERE election_id >= " + FIRST_WRITE_ELECTION);
+            st.executeUpdate("DELETE FROM election_results WHERE election_id >= " + FIRST_WRITE_ELECTION);
+        }
+        nextBallot.set(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        VoteDAO.setIngestionPipeline(null);
+        if (pipeline != null) pipeline.close();
+        DatabaseConnection.shutdown();
+    }
+
+    @Benchmark
+    public boolean castVote() {
+        int k = nextBallot.getAndIncrement();
+        Vote vote = new Vote();
+        vote.setVoterId(EmbeddedDatabase.voterId(k % voters));
+        vote.setElectionId(FIRST_WRITE_ELECTION + (k / voters) % writeElections);
+        vote.setCandidateId(1 + k % candidates);
+        return voteDAO.castVote(vote);
+    }
+}